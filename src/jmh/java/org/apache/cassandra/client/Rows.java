@@ -0,0 +1,106 @@
+package org.apache.cassandra.client;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.SuperColumn;
+import org.apache.cassandra.unit.Key;
+
+/**
+ * Builds the thrift rows the benchmarks decode, as get_range_slices
+ * would return them, in a few shapes of the same number of cells.
+ */
+public class Rows {
+    public enum Shape {
+        /** rows of 10 columns */
+        NARROW,
+        /** a single row holding every cell */
+        WIDE,
+        /** rows of 10 super columns of 10 columns */
+        SUPER
+    }
+
+    private static final int NARROW_COLUMNS = 10;
+    private static final int SUPER_COLUMNS = 10;
+    private static final int VALUE_LENGTH = 32;
+
+    private Rows() {
+    }
+
+    /**
+     * @return the rows of shape holding cells cells, one list of columns per row
+     */
+    public static List<List<ColumnOrSuperColumn>> build(Shape shape, int cells) {
+        int cellsPerRow = shape == Shape.WIDE ? cells :
+                          shape == Shape.SUPER ? SUPER_COLUMNS * NARROW_COLUMNS : NARROW_COLUMNS;
+        long timestamp = System.currentTimeMillis() * 1000;
+
+        List<List<ColumnOrSuperColumn>> rows = new ArrayList<List<ColumnOrSuperColumn>>();
+        for (int built = 0; built < cells; built += cellsPerRow) {
+            int n = Math.min(cellsPerRow, cells - built);
+            List<ColumnOrSuperColumn> row = new ArrayList<ColumnOrSuperColumn>();
+            if (shape == Shape.SUPER) {
+                for (int s = 0; s * NARROW_COLUMNS < n; s++) {
+                    SuperColumn sc = new SuperColumn();
+                    sc.setName(name("super", s));
+                    for (int i = s * NARROW_COLUMNS; i < Math.min((s + 1) * NARROW_COLUMNS, n); i++) {
+                        sc.addToColumns(column(i, timestamp + i));
+                    }
+                    ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                    cosc.setSuper_column(sc);
+                    row.add(cosc);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                    cosc.setColumn(column(i, timestamp + i));
+                    row.add(cosc);
+                }
+            }
+            rows.add(row);
+        }
+
+        return rows;
+    }
+
+    /**
+     * @return rows decoded to keys, as the GUI gets them from the client
+     */
+    public static List<Key> toKeys(List<List<ColumnOrSuperColumn>> rows) throws UnsupportedEncodingException {
+        List<Key> keys = new ArrayList<Key>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            keys.add(Client.toKey(keyName(i), rows.get(i), ColumnFamilyCodecs.DEFAULT));
+        }
+
+        return keys;
+    }
+
+    public static String keyName(int i) {
+        return String.format("key%08d", i);
+    }
+
+    private static Column column(int i, long timestamp) {
+        byte[] value = new byte[VALUE_LENGTH];
+        for (int j = 0; j < value.length; j++) {
+            value[j] = (byte) ('a' + (i + j) % 26);
+        }
+
+        Column c = new Column(ByteBuffer.wrap(name("column", i)));
+        c.setValue(value);
+        c.setTimestamp(timestamp);
+
+        return c;
+    }
+
+    private static byte[] name(String prefix, int i) {
+        try {
+            return String.format("%s%08d", prefix, i).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.apache.cassandra.client;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.unit.Cell;
+import org.apache.cassandra.unit.Key;
+import org.apache.cassandra.unit.SColumn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of the thrift rows of a page into Key, SColumn and Cell,
+ * the loop behind getKey, listKeyAndValues and the pagers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToKeyBenchmark {
+    @Param({"NARROW", "WIDE", "SUPER"})
+    public Rows.Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int cells;
+
+    private List<List<ColumnOrSuperColumn>> rows;
+
+    @Setup
+    public void setup() {
+        rows = Rows.build(shape, cells);
+    }
+
+    @Benchmark
+    public void toKey(Blackhole bh) throws UnsupportedEncodingException {
+        for (int i = 0; i < rows.size(); i++) {
+            bh.consume(Client.toKey(Rows.keyName(i), rows.get(i), ColumnFamilyCodecs.DEFAULT));
+        }
+    }
+
+    /**
+     * Decoding plus the value strings, as when every cell is shown.
+     */
+    @Benchmark
+    public void toKeyAndValues(Blackhole bh) throws UnsupportedEncodingException {
+        for (Key k : Rows.toKeys(rows)) {
+            for (SColumn s : k.getSColumns().values()) {
+                for (Cell c : s.getCells().values()) {
+                    bh.consume(c.getValue());
+                }
+            }
+            for (Cell c : k.getCells().values()) {
+                bh.consume(c.getValue());
+            }
+        }
+    }
+}
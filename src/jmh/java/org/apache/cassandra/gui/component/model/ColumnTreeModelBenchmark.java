@@ -0,0 +1,103 @@
+package org.apache.cassandra.gui.component.model;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.client.Rows;
+import org.apache.cassandra.unit.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building the nodes of the column tree and formatting their labels,
+ * without a JTree, so it runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnTreeModelBenchmark {
+    @Param({"NARROW", "WIDE", "SUPER"})
+    public Rows.Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int cells;
+
+    private List<Key> keys;
+    private ColumnTreeModel expanded;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        keys = Rows.toKeys(Rows.build(shape, cells));
+        expanded = new ColumnTreeModel("cf");
+        expanded.addKeys(keys);
+        expand(expanded, expanded.getRoot(), null);
+    }
+
+    /**
+     * Adding a page of keys, as the rows are shown.
+     */
+    @Benchmark
+    public ColumnTreeModel addKeys() {
+        ColumnTreeModel model = new ColumnTreeModel("cf");
+        model.addKeys(keys);
+
+        return model;
+    }
+
+    /**
+     * Adding a page of keys and expanding every node.
+     */
+    @Benchmark
+    public void addKeysAndExpand(Blackhole bh) {
+        ColumnTreeModel model = new ColumnTreeModel("cf");
+        model.addKeys(keys);
+        expand(model, model.getRoot(), bh);
+    }
+
+    /**
+     * Formatting the label of every node, cell dates included,
+     * as when the whole tree is painted.
+     */
+    @Benchmark
+    public void labels(Blackhole bh) {
+        label(expanded, expanded.getRoot(), bh);
+    }
+
+    private static void expand(ColumnTreeModel model, Object node, Blackhole bh) {
+        int n = model.getChildCount(node);
+        for (int i = 0; i < n; i++) {
+            Object child = model.getChild(node, i);
+            if (bh != null) {
+                bh.consume(child);
+            }
+            if (!model.isLeaf(child)) {
+                expand(model, child, bh);
+            }
+        }
+    }
+
+    private static void label(ColumnTreeModel model, Object node, Blackhole bh) {
+        int n = model.getChildCount(node);
+        for (int i = 0; i < n; i++) {
+            Object child = model.getChild(node, i);
+            bh.consume(model.getLabel(child));
+            if (!model.isLeaf(child)) {
+                label(model, child, bh);
+            }
+        }
+    }
+}
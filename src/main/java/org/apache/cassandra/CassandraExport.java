@@ -0,0 +1,77 @@
+package org.apache.cassandra;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.Exporter;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.thrift.TException;
+
+/**
+ * Exports a column family without the GUI.
+ * The file is written as JSON Lines when its name ends with .json, as CSV otherwise.
+ * Same as the export command of {@link CassandraTool}.
+ */
+public class CassandraExport {
+    private static final String USAGE =
+        "usage: CassandraExport <host>[:<thrift port>] <keyspace> <column family> <file>";
+    private static final long REPORT_INTERVAL = 1000;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        File file = new File(args[3]);
+
+        Client client = CassandraTool.newClient(args[0]);
+        try {
+            client.connect();
+
+            Exporter exporter = new Exporter(client, args[1], args[2], Exporter.Format.forFile(file));
+            exporter.open(file);
+            export(exporter);
+        } catch (Exception e) {
+            System.err.println("error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Run an opened exporter to the end of its rows, then close it,
+     * reporting its progress on stderr.
+     */
+    static void export(Exporter exporter)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, IOException {
+        try {
+            long reported = 0;
+            while (exporter.exportPage()) {
+                if (exporter.getElapsed() - reported >= REPORT_INTERVAL) {
+                    reported = exporter.getElapsed();
+                    report(exporter);
+                }
+            }
+        } finally {
+            exporter.close();
+        }
+        report(exporter);
+    }
+
+    private static void report(Exporter exporter) {
+        System.err.println(exporter.getRows() + " rows, " +
+                           exporter.getColumns() + " columns, " +
+                           exporter.getBytes() + " bytes, " +
+                           exporter.getRowsPerSecond() + " rows/sec, " +
+                           exporter.getBytesPerSecond() + " bytes/sec");
+    }
+}
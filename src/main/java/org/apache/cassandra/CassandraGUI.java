@@ -5,9 +5,11 @@ import java.awt.Dimension;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.List;
 
 import javax.swing.*;
 
+import org.apache.cassandra.gui.component.dialog.ClientMetricsDialog;
 import org.apache.cassandra.gui.component.dialog.ConnectionDialog;
 import org.apache.cassandra.gui.component.dialog.listener.WindowCloseedListener;
 import org.apache.cassandra.gui.component.panel.ColumnTreePanel;
@@ -16,6 +18,7 @@ import org.apache.cassandra.gui.component.panel.PropertiesPanel;
 import org.apache.cassandra.gui.control.callback.PropertiesCallback;
 import org.apache.cassandra.gui.control.callback.RepaintCallback;
 import org.apache.cassandra.gui.control.callback.SelectedColumnFamilyCallback;
+import org.apache.cassandra.thrift.IndexExpression;
 
 public class CassandraGUI extends JFrame {
     private static final long serialVersionUID = -7402974525268824644L;
@@ -69,6 +72,17 @@ public class CassandraGUI extends JFrame {
         });
         fileMenu.add(exitMenuItem);
 
+        // Add Tools Menu
+        JMenu toolsMenu = new JMenu("Tools");
+        JMenuItem metricsMenuItem = new JMenuItem("Client metrics");
+        metricsMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                new ClientMetricsDialog(dlg.getClient().getMetrics()).monitor();
+            }
+        });
+        toolsMenu.add(metricsMenuItem);
+
         // Add Help Menu
 
         JMenu helpMenu = new JMenu("Help");
@@ -83,6 +97,7 @@ public class CassandraGUI extends JFrame {
         });
         helpMenu.add(aboutMenuItem);
         menuBar.add(fileMenu);
+        menuBar.add(toolsMenu);
         menuBar.add(helpMenu);
 
         final PropertiesPanel propertiesPane = new PropertiesPanel(dlg.getClient());
@@ -102,6 +117,19 @@ public class CassandraGUI extends JFrame {
             public void getCacllback(String keyspace, String columnFamily, String key) {
                 columnTreePane.showRow(keyspace, columnFamily, key);
             }
+
+            @Override
+            public void getKeysCallback(String keyspace, String columnFamily, List<String> keys, int batchSize) {
+                columnTreePane.showRows(keyspace, columnFamily, keys, batchSize);
+            }
+
+            @Override
+            public void indexQueryCallback(String keyspace,
+                                           String columnFamily,
+                                           List<IndexExpression> expressions,
+                                           int rows) {
+                columnTreePane.showIndexedRows(keyspace, columnFamily, expressions, rows);
+            }
         });
         keyspaceTreePanel.setPropertiesCallback(new PropertiesCallback() {
             @Override
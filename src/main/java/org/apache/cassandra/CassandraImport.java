@@ -0,0 +1,104 @@
+package org.apache.cassandra;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.Exporter;
+import org.apache.cassandra.client.Importer;
+
+/**
+ * Imports a file written by CassandraExport without the GUI.
+ * The file is read as JSON Lines when its name ends with .json, as CSV otherwise.
+ * Same as the import command of {@link CassandraTool}.
+ */
+public class CassandraImport {
+    private static final String USAGE =
+        "usage: CassandraImport <host>[:<thrift port>] <keyspace> <column family> <file> " +
+        "[<batch size> [<batches in flight>]]";
+    private static final long REPORT_INTERVAL = 1000;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length < 4 || args.length > 6) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        File file = new File(args[3]);
+        int batchSize = args.length > 4 ? Integer.valueOf(args[4]) : Importer.DEFAULT_BATCH_SIZE;
+        int maxInFlight = args.length > 5 ? Integer.valueOf(args[5]) : Importer.DEFAULT_MAX_IN_FLIGHT;
+
+        Client client = CassandraTool.newClient(args[0]);
+        try {
+            client.connect();
+
+            if (!importFile(client, args[1], args[2], file, batchSize, maxInFlight)) {
+                System.exit(2);
+            }
+        } catch (Exception e) {
+            System.err.println("error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Import file, reporting the progress on stderr.
+     *
+     * @return false when some rows could not be written
+     */
+    static boolean importFile(Client client,
+                              String keyspace,
+                              String columnFamily,
+                              File file,
+                              int batchSize,
+                              int maxInFlight)
+            throws IOException, InterruptedException {
+        final Importer importer = new Importer(client,
+                                               keyspace,
+                                               columnFamily,
+                                               Exporter.Format.forFile(file),
+                                               batchSize,
+                                               maxInFlight);
+        Thread reporter = new Thread("CassandraImportReporter") {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Thread.sleep(REPORT_INTERVAL);
+                        report(importer);
+                    }
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        reporter.setDaemon(true);
+        reporter.start();
+
+        try {
+            importer.importFile(file);
+        } finally {
+            reporter.interrupt();
+        }
+        report(importer);
+
+        if (importer.getLastError() != null) {
+            System.err.println("last error: " + importer.getLastError().getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    private static void report(Importer importer) {
+        System.err.println(importer.getRows() + " rows, " +
+                           importer.getColumns() + " columns, " +
+                           importer.getFailedRows() + " failed rows, " +
+                           importer.getRowsPerSecond() + " rows/sec");
+    }
+}
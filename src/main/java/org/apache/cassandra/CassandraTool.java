@@ -0,0 +1,233 @@
+package org.apache.cassandra;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.CountCallback;
+import org.apache.cassandra.client.Exporter;
+import org.apache.cassandra.client.Importer;
+import org.apache.cassandra.client.RowCounter;
+import org.apache.cassandra.node.RingNode;
+import org.apache.cassandra.node.Tpstats;
+
+/**
+ * Runs the operations of the GUI from the command line, without X11.
+ * Results are streamed to stdout, rows as JSON Lines like CassandraExport
+ * writes them, everything else as tab separated lines; progress and
+ * errors go to stderr, so the output can be piped to other tools.
+ */
+public class CassandraTool {
+    private static final String USAGE =
+        "usage: CassandraTool <host>[:<thrift port>[:<jmx port>]] <command> [<args>]\n" +
+        "commands:\n" +
+        "  ring\n" +
+        "  tpstats <endpoint>\n" +
+        "  rows <keyspace> <column family> [<start key> [<end key>]]\n" +
+        "  key <keyspace> <column family> <key>...\n" +
+        "  count <keyspace> <column family> [<key> [<super column>]]\n" +
+        "  export <keyspace> <column family> <file>|-\n" +
+        "  import <keyspace> <column family> <file> [<batch size> [<batches in flight>]]";
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            usage();
+        }
+
+        Client client = newClient(args[0]);
+        String command = args[1];
+        List<String> l = Arrays.asList(args).subList(2, args.length);
+        int status = 0;
+        try {
+            client.connect();
+
+            if (command.equals("ring")) {
+                checkArgs(l, 0, 0);
+                ring(client);
+            } else if (command.equals("tpstats")) {
+                checkArgs(l, 1, 1);
+                tpstats(client, l.get(0));
+            } else if (command.equals("rows")) {
+                checkArgs(l, 2, 4);
+                rows(client, l.get(0), l.get(1), l.size() > 2 ? l.get(2) : "", l.size() > 3 ? l.get(3) : "");
+            } else if (command.equals("key")) {
+                checkArgs(l, 3, Integer.MAX_VALUE);
+                status = keys(client, l.get(0), l.get(1), l.subList(2, l.size()));
+            } else if (command.equals("count")) {
+                checkArgs(l, 2, 4);
+                count(client, l.get(0), l.get(1), l.size() > 2 ? l.get(2) : null, l.size() > 3 ? l.get(3) : null);
+            } else if (command.equals("export")) {
+                checkArgs(l, 3, 3);
+                export(client, l.get(0), l.get(1), l.get(2));
+            } else if (command.equals("import")) {
+                checkArgs(l, 3, 5);
+                if (!CassandraImport.importFile(client,
+                                                l.get(0),
+                                                l.get(1),
+                                                new File(l.get(2)),
+                                                l.size() > 3 ? Integer.valueOf(l.get(3)) : Importer.DEFAULT_BATCH_SIZE,
+                                                l.size() > 4 ? Integer.valueOf(l.get(4)) : Importer.DEFAULT_MAX_IN_FLIGHT)) {
+                    status = 2;
+                }
+            } else {
+                usage();
+            }
+        } catch (Exception e) {
+            System.err.println("error: " + e.getMessage());
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            client.disconnect();
+        }
+
+        System.exit(status);
+    }
+
+    /**
+     * @param address <host>[:<thrift port>[:<jmx port>]]
+     * @return a client of address, not connected yet
+     */
+    static Client newClient(String address) {
+        String[] a = address.split(":");
+        if (a.length > 3) {
+            usage();
+        }
+
+        return new Client(a[0],
+                          a.length > 1 ? Integer.valueOf(a[1]) : Client.DEFAULT_THRIFT_PORT,
+                          a.length > 2 ? Integer.valueOf(a[2]) : Client.DEFAULT_JMX_PORT);
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    private static void checkArgs(List<String> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            usage();
+        }
+    }
+
+    private static void ring(Client client) throws Exception {
+        RingNode r = client.listRing();
+        Map<String, Float> ownershipMap = r.getOwnershipMap();
+
+        PrintStream out = System.out;
+        out.println("address\tstatus\tload\towns\ttoken");
+        for (String range : r.getRanges()) {
+            String endpoint = r.getRangeMap().get(range);
+            String status = r.getLiveNodes().contains(endpoint) ? "Up" :
+                            r.getDeadNodes().contains(endpoint) ? "Down" : "?";
+            String owns = ownershipMap == null || !ownershipMap.containsKey(range) ?
+                              "?" :
+                              String.format("%.2f%%", ownershipMap.get(range) * 100);
+            out.println(endpoint + "\t" + status + "\t" + r.getLoadMap().get(endpoint) + "\t" + owns + "\t" + range);
+        }
+        out.flush();
+    }
+
+    private static void tpstats(Client client, String endpoint) throws Exception {
+        PrintStream out = System.out;
+        out.println("pool\tactive\tpending\tcompleted");
+        for (Tpstats tp : client.getTpstats(endpoint)) {
+            out.println(tp.getPoolName() + "\t" +
+                        tp.getActiveCount() + "\t" +
+                        tp.getPendingTasks() + "\t" +
+                        tp.getCompletedTasks());
+        }
+        out.flush();
+    }
+
+    private static void rows(Client client, String keyspace, String columnFamily, String startKey, String endKey)
+            throws Exception {
+        Exporter exporter = new Exporter(client,
+                                         keyspace,
+                                         columnFamily,
+                                         Exporter.Format.JSON,
+                                         startKey,
+                                         endKey,
+                                         Exporter.DEFAULT_PAGE_SIZE,
+                                         Client.DEFAULT_COLUMN_COUNT);
+        exporter.open(stdout());
+        CassandraExport.export(exporter);
+    }
+
+    /**
+     * @return 3 when a key has no columns
+     */
+    private static int keys(Client client, String keyspace, String columnFamily, List<String> keys)
+            throws Exception {
+        int status = 0;
+        Exporter exporter = new Exporter(client, keyspace, columnFamily, Exporter.Format.JSON);
+        exporter.open(stdout());
+        try {
+            for (String key : keys) {
+                if (!exporter.exportKey(key)) {
+                    System.err.println("not found: " + key);
+                    status = 3;
+                }
+            }
+        } finally {
+            exporter.close();
+        }
+
+        return status;
+    }
+
+    private static void count(Client client, String keyspace, String columnFamily, String key, String superColumn)
+            throws Exception {
+        RowCounter counter = client.getRowCounter(keyspace, columnFamily, RowCounter.DEFAULT_BATCH_SIZE);
+        CountCallback callback = new CountCallback() {
+            @Override
+            public void countCallback(long count) {
+                System.err.print("\r" + count);
+            }
+        };
+
+        long count = key == null ? counter.countRows(callback) : counter.countColumns(key, superColumn, callback);
+        System.err.println();
+        System.out.println(count);
+    }
+
+    private static void export(Client client, String keyspace, String columnFamily, String fileName)
+            throws Exception {
+        if (fileName.equals("-")) {
+            Exporter exporter = new Exporter(client, keyspace, columnFamily, Exporter.Format.JSON);
+            exporter.open(stdout());
+            CassandraExport.export(exporter);
+            return;
+        }
+
+        File file = new File(fileName);
+        Exporter exporter = new Exporter(client, keyspace, columnFamily, Exporter.Format.forFile(file));
+        exporter.open(file);
+        CassandraExport.export(exporter);
+    }
+
+    /**
+     * stdout without closing it, the exporter buffers its output itself.
+     */
+    private static OutputStream stdout() {
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,492 @@
+package org.apache.cassandra.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ColumnParent;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * Sends Thrift requests without blocking the calling thread, each
+ * request returning an {@link AsyncResult}.
+ *
+ * All connections are served by the one selector thread of a
+ * TAsyncClientManager. A Thrift async connection runs one call at a
+ * time, so up to maxConnectionsPerHost calls run at the same time per
+ * host and the requests beyond that wait in a queue of the host until
+ * a connection is free. Like the blocking calls of {@link Client}, a
+ * request goes to the first of its hosts and to the next one when the
+ * connection fails or times out; a connection which failed is closed.
+ * Given {@link ClientMetrics}, the latency of each attempt is recorded
+ * under the name of its Thrift method, without byte counts.
+ */
+public class AsyncClient {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final long DEFAULT_TIMEOUT = 10000;
+
+    /**
+     * A request and its result. The request is its own callback,
+     * C is the type of the Thrift call it makes.
+     */
+    private abstract class Request<T, C> implements AsyncMethodCallback<C> {
+        private final String name;
+        private final List<String> hosts;
+        private final String keyspace;
+        private final AsyncResult<T> result = new AsyncResult<T>();
+        private int hostIndex;
+        private Connection conn;
+        private long started;
+
+        private Request(String name, List<String> hosts, String keyspace) {
+            if (hosts.isEmpty()) {
+                throw new IllegalArgumentException("no host to send the request to");
+            }
+            this.name = name;
+            this.hosts = hosts;
+            this.keyspace = keyspace;
+        }
+
+        protected abstract void send(Cassandra.AsyncClient client) throws TException;
+
+        protected abstract T getResult(C call) throws Exception;
+
+        @Override
+        public void onComplete(C call) {
+            T value = null;
+            Exception error = null;
+            try {
+                value = getResult(call);
+            } catch (Exception e) {
+                error = e;
+            }
+            record(error != null);
+
+            // errors of the request itself leave the connection usable
+            Connection c = conn;
+            conn = null;
+            c.host.release(c);
+
+            if (error == null) {
+                result.set(value);
+            } else {
+                result.setError(error);
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            record(true);
+            Connection c = conn;
+            conn = null;
+            c.host.discard(c);
+            retry(e);
+        }
+
+        private void record(boolean failed) {
+            if (metrics != null) {
+                metrics.record(name, started, 0, 0, failed);
+            }
+        }
+
+        private void retry(Exception e) {
+            if (++hostIndex < hosts.size() && !closed && !result.isDone()) {
+                submit(this);
+            } else {
+                result.setError(e);
+            }
+        }
+    }
+
+    /**
+     * An async connection to a host.
+     */
+    private class Connection {
+        private final HostQueue host;
+        private final TNonblockingSocket socket;
+        private final Cassandra.AsyncClient client;
+        private String keyspace;
+        private volatile Request<?, ?> request;
+
+        private Connection(HostQueue host) throws IOException {
+            this.host = host;
+            this.socket = new TNonblockingSocket(host.host, port);
+            this.client = new Cassandra.AsyncClient(new TBinaryProtocol.Factory(), manager, socket);
+            client.setTimeout(timeout);
+        }
+
+        private void dispatch(final Request<?, ?> r) {
+            request = r;
+            r.conn = this;
+            r.started = System.nanoTime();
+            try {
+                if (r.keyspace == null || r.keyspace.equals(keyspace)) {
+                    r.send(client);
+                    return;
+                }
+
+                client.set_keyspace(r.keyspace, new AsyncMethodCallback<Cassandra.AsyncClient.set_keyspace_call>() {
+                    @Override
+                    public void onComplete(Cassandra.AsyncClient.set_keyspace_call call) {
+                        try {
+                            call.getResult();
+                        } catch (Exception e) {
+                            r.record(true);
+                            r.conn = null;
+                            host.release(Connection.this);
+                            r.result.setError(e);
+                            return;
+                        }
+
+                        keyspace = r.keyspace;
+                        try {
+                            r.send(client);
+                        } catch (TException e) {
+                            r.onError(e);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        r.onError(e);
+                    }
+                });
+            } catch (TException e) {
+                r.onError(e);
+            }
+        }
+
+        private void close() {
+            socket.close();
+        }
+    }
+
+    /**
+     * The connections of one host and the requests waiting for them.
+     */
+    private class HostQueue {
+        private final String host;
+        private final Set<Connection> connections = new HashSet<Connection>();
+        private final LinkedList<Connection> idle = new LinkedList<Connection>();
+        private final LinkedList<Request<?, ?>> waiting = new LinkedList<Request<?, ?>>();
+        private int open;
+
+        private HostQueue(String host) {
+            this.host = host;
+        }
+
+        private void submit(Request<?, ?> r) {
+            Connection conn = null;
+            synchronized (this) {
+                conn = idle.pollFirst();
+                if (conn == null && open >= maxConnectionsPerHost) {
+                    waiting.addLast(r);
+                    return;
+                } else if (conn == null) {
+                    open++;
+                }
+            }
+
+            if (conn == null) {
+                try {
+                    conn = open();
+                } catch (IOException e) {
+                    r.retry(e);
+                    return;
+                }
+            }
+            conn.dispatch(r);
+        }
+
+        private void release(Connection conn) {
+            conn.request = null;
+            Request<?, ?> next = null;
+            synchronized (this) {
+                next = pollWaiting();
+                if (next == null) {
+                    if (closed) {
+                        connections.remove(conn);
+                        open--;
+                        conn.close();
+                    } else {
+                        idle.addFirst(conn);
+                    }
+                    return;
+                }
+            }
+            conn.dispatch(next);
+        }
+
+        /**
+         * Close a connection which failed, opening another one
+         * for the next waiting request.
+         */
+        private void discard(Connection conn) {
+            conn.close();
+            Request<?, ?> next = null;
+            synchronized (this) {
+                connections.remove(conn);
+                next = pollWaiting();
+                if (next == null) {
+                    open--;
+                    return;
+                }
+            }
+
+            // the next request takes over the place of conn
+            try {
+                open().dispatch(next);
+            } catch (IOException e) {
+                next.retry(e);
+            }
+        }
+
+        /**
+         * Open a connection, its place among the maxConnectionsPerHost
+         * connections of the host being taken already.
+         */
+        private Connection open() throws IOException {
+            Connection conn = null;
+            try {
+                conn = new Connection(this);
+            } catch (IOException e) {
+                synchronized (this) {
+                    open--;
+                }
+                failWaiting(e);
+                throw e;
+            }
+
+            synchronized (this) {
+                connections.add(conn);
+            }
+            return conn;
+        }
+
+        /**
+         * Send the waiting requests to their next host, when the
+         * host can not be reached and has no connection to serve them.
+         */
+        private void failWaiting(IOException e) {
+            List<Request<?, ?>> l = null;
+            synchronized (this) {
+                if (open > 0) {
+                    return;
+                }
+                l = new ArrayList<Request<?, ?>>(waiting);
+                waiting.clear();
+            }
+
+            for (Request<?, ?> r : l) {
+                r.retry(e);
+            }
+        }
+
+        private Request<?, ?> pollWaiting() {
+            Request<?, ?> r = waiting.pollFirst();
+            while (r != null && r.result.isCancelled()) {
+                r = waiting.pollFirst();
+            }
+            return r;
+        }
+
+        private void close() {
+            List<Request<?, ?>> l = new ArrayList<Request<?, ?>>();
+            synchronized (this) {
+                for (Connection conn : connections) {
+                    conn.close();
+                    if (conn.request != null) {
+                        l.add(conn.request);
+                    }
+                }
+                connections.clear();
+                idle.clear();
+                open = 0;
+                l.addAll(waiting);
+                waiting.clear();
+            }
+
+            for (Request<?, ?> r : l) {
+                r.result.setError(new TTransportException(TTransportException.NOT_OPEN, "client is closed"));
+            }
+        }
+    }
+
+    private final int port;
+    private final int maxConnectionsPerHost;
+    private final long timeout;
+    private final TAsyncClientManager manager;
+    private final ClientMetrics metrics;
+    private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>();
+    private volatile boolean closed;
+
+    public AsyncClient(int port) throws IOException {
+        this(port, null);
+    }
+
+    public AsyncClient(int port, ClientMetrics metrics) throws IOException {
+        this(port, DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_TIMEOUT, metrics);
+    }
+
+    /**
+     * @param port Thrift port of every host
+     * @param maxConnectionsPerHost calls running at the same time per host
+     * @param timeout milliseconds after which a call fails
+     * @param metrics where the calls are recorded, null to record none
+     */
+    public AsyncClient(int port, int maxConnectionsPerHost, long timeout, ClientMetrics metrics) throws IOException {
+        this.port = port;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.timeout = timeout;
+        this.metrics = metrics;
+        this.manager = new TAsyncClientManager();
+    }
+
+    /**
+     * Fetch a slice of the columns of key.
+     */
+    public AsyncResult<List<ColumnOrSuperColumn>> getSlice(List<String> hosts,
+                                                           String keyspace,
+                                                           final ByteBuffer key,
+                                                           final ColumnParent columnParent,
+                                                           final SlicePredicate predicate,
+                                                           final ConsistencyLevel consistencyLevel) {
+        return submit(new Request<List<ColumnOrSuperColumn>, Cassandra.AsyncClient.get_slice_call>("get_slice", hosts, keyspace) {
+            @Override
+            protected void send(Cassandra.AsyncClient client) throws TException {
+                client.get_slice(key, columnParent, predicate, consistencyLevel, this);
+            }
+
+            @Override
+            protected List<ColumnOrSuperColumn> getResult(Cassandra.AsyncClient.get_slice_call call) throws Exception {
+                return call.getResult();
+            }
+        });
+    }
+
+    /**
+     * Fetch a slice of the columns of every row of a key range.
+     */
+    public AsyncResult<List<KeySlice>> getRangeSlices(List<String> hosts,
+                                                      String keyspace,
+                                                      final ColumnParent columnParent,
+                                                      final SlicePredicate predicate,
+                                                      final KeyRange keyRange,
+                                                      final ConsistencyLevel consistencyLevel) {
+        return submit(new Request<List<KeySlice>, Cassandra.AsyncClient.get_range_slices_call>("get_range_slices", hosts, keyspace) {
+            @Override
+            protected void send(Cassandra.AsyncClient client) throws TException {
+                client.get_range_slices(columnParent, predicate, keyRange, consistencyLevel, this);
+            }
+
+            @Override
+            protected List<KeySlice> getResult(Cassandra.AsyncClient.get_range_slices_call call) throws Exception {
+                return call.getResult();
+            }
+        });
+    }
+
+    /**
+     * Fetch a slice of the columns of each of keys.
+     */
+    public AsyncResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> multigetSlice(List<String> hosts,
+                                                                                String keyspace,
+                                                                                final List<ByteBuffer> keys,
+                                                                                final ColumnParent columnParent,
+                                                                                final SlicePredicate predicate,
+                                                                                final ConsistencyLevel consistencyLevel) {
+        return submit(new Request<Map<ByteBuffer, List<ColumnOrSuperColumn>>, Cassandra.AsyncClient.multiget_slice_call>("multiget_slice", hosts, keyspace) {
+            @Override
+            protected void send(Cassandra.AsyncClient client) throws TException {
+                client.multiget_slice(keys, columnParent, predicate, consistencyLevel, this);
+            }
+
+            @Override
+            protected Map<ByteBuffer, List<ColumnOrSuperColumn>> getResult(Cassandra.AsyncClient.multiget_slice_call call)
+                    throws Exception {
+                return call.getResult();
+            }
+        });
+    }
+
+    /**
+     * Apply a batch of mutations.
+     *
+     * @param mutations key to column family name to mutations
+     */
+    public AsyncResult<Void> batchMutate(List<String> hosts,
+                                         String keyspace,
+                                         final Map<ByteBuffer, Map<String, List<Mutation>>> mutations,
+                                         final ConsistencyLevel consistencyLevel) {
+        return submit(new Request<Void, Cassandra.AsyncClient.batch_mutate_call>("batch_mutate", hosts, keyspace) {
+            @Override
+            protected void send(Cassandra.AsyncClient client) throws TException {
+                client.batch_mutate(mutations, consistencyLevel, this);
+            }
+
+            @Override
+            protected Void getResult(Cassandra.AsyncClient.batch_mutate_call call) throws Exception {
+                call.getResult();
+                return null;
+            }
+        });
+    }
+
+    private <T, C> AsyncResult<T> submit(Request<T, C> r) {
+        if (closed) {
+            r.result.setError(new TTransportException(TTransportException.NOT_OPEN, "client is closed"));
+        } else {
+            getHostQueue(r.hosts.get(r.hostIndex)).submit(r);
+        }
+
+        return r.result;
+    }
+
+    private synchronized HostQueue getHostQueue(String host) {
+        HostQueue queue = hosts.get(host);
+        if (queue == null) {
+            queue = new HostQueue(host);
+            hosts.put(host, queue);
+        }
+
+        return queue;
+    }
+
+    /**
+     * Close every connection and stop the selector thread, the
+     * requests still running or waiting fail.
+     */
+    public void close() {
+        closed = true;
+        List<HostQueue> l = null;
+        synchronized (this) {
+            l = new ArrayList<HostQueue>(hosts.values());
+        }
+        for (HostQueue queue : l) {
+            queue.close();
+        }
+        manager.stop();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
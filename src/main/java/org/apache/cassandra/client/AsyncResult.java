@@ -0,0 +1,108 @@
+package org.apache.cassandra.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of a request sent by an {@link AsyncClient}.
+ * Listeners are run by the thread which completes the result, usually
+ * the selector thread of the client, so they must not block.
+ */
+public class AsyncResult<T> implements Future<T> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private List<Runnable> listeners = new ArrayList<Runnable>();
+    private T value;
+    private Exception error;
+    private boolean cancelled;
+
+    boolean set(T value) {
+        return complete(value, null, false);
+    }
+
+    boolean setError(Exception error) {
+        return complete(null, error, false);
+    }
+
+    /**
+     * A request already sent still runs on the server,
+     * only its result is dropped.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return complete(null, null, true);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    /**
+     * Run listener once the result is set, at once if it is set already.
+     */
+    public void addListener(Runnable listener) {
+        synchronized (this) {
+            if (listeners != null) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private boolean complete(T value, Exception error, boolean cancelled) {
+        List<Runnable> l = null;
+        synchronized (this) {
+            if (listeners == null) {
+                return false;
+            }
+            this.value = value;
+            this.error = error;
+            this.cancelled = cancelled;
+            l = listeners;
+            listeners = null;
+        }
+        latch.countDown();
+
+        for (Runnable listener : l) {
+            listener.run();
+        }
+
+        return true;
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        } else if (error != null) {
+            throw new ExecutionException(error);
+        }
+
+        return value;
+    }
+}
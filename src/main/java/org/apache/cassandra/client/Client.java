@@ -12,9 +12,16 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
 
 import org.apache.cassandra.concurrent.IExecutorMBean;
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutorMBean;
+import org.apache.cassandra.config.ConfigurationException;
+import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.locator.SimpleSnitch;
 import org.apache.cassandra.node.NodeInfo;
@@ -27,17 +34,26 @@ import org.apache.cassandra.unit.ColumnFamily;
 import org.apache.cassandra.unit.ColumnFamilyMetaData;
 import org.apache.cassandra.unit.Key;
 import org.apache.cassandra.unit.SColumn;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TFramedTransport;
-import org.apache.thrift.transport.TSocket;
-import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 
 /**
  * Client class to interact with Cassandara cluster
  *
+ * Every Thrift call borrows a connection from a {@link ConnectionPool}
+ * and sets the keyspace it needs on it, so an instance can be shared
+ * between the event dispatch thread and background loaders and their
+ * calls run in parallel.
+ * Reads and writes of a single key are sent straight to a node holding
+ * a replica of it, see {@link TokenMap}.
+ * Scans and bulk loads keep many requests in flight on few threads
+ * through the futures of an {@link AsyncClient}, created on first use.
+ * JMX connections to the nodes are kept open by a {@link NodeProbeCache}.
+ * Keyspace definitions are cached until this client changes the schema
+ * or the schema versions of the cluster change, see {@link SchemaCache}.
+ * The keyspace and columnFamily properties only record what the GUI
+ * worked on last, they are not used by the calls themselves.
  */
 public class Client {
     public static final String DEFAULT_THRIFT_HOST = "localhost";
@@ -45,8 +61,39 @@ public class Client {
     public static final int DEFAULT_JMX_PORT = 7199;
     private static final String UTF8 = "UTF8";
 
+    /**
+     * Number of columns fetched per row when no count is given,
+     * the Thrift default for SliceRange.
+     */
+    public static final int DEFAULT_COLUMN_COUNT = 100;
+
     private static final String CQL_URL = "jdbc:cassandra:/@%s:%d/%s";
 
+    /**
+     * Milliseconds after which the replicas of a keyspace are read again.
+     */
+    private static final long TOKEN_MAP_TTL = 60000;
+
+    /**
+     * Milliseconds after which describe_ring is tried again
+     * for a keyspace whose ring could not be read.
+     */
+    private static final long EMPTY_TOKEN_MAP_TTL = 5000;
+
+    /**
+     * Milliseconds after which the schema versions are checked again
+     * before the cached schema is used.
+     */
+    private static final long SCHEMA_CHECK_INTERVAL = 5000;
+
+    /**
+     * A request which can be sent to any of several nodes.
+     */
+    private static abstract class Operation<T> {
+        public abstract T execute(Cassandra.Iface client)
+                throws InvalidRequestException, UnavailableException, TimedOutException, TException;
+    }
+
     public enum ColumnType {
         SUPER("Super"),
         STANDARD("Standard");
@@ -62,23 +109,28 @@ public class Client {
         }
     }
 
-    private TTransport transport;
-    private TProtocol protocol;
-    private Cassandra.Client client;
-    private NodeProbe probe;
+    private ConnectionPool pool;
+    private NodeProbeCache probes;
+    private AsyncClient async;
 
     private Connection db;
     private Statement st;
 
-    private boolean connected = false;
+    private volatile boolean connected = false;
     private boolean cqlConnected = false;
     private String host;
     private int thriftPort;
     private int jmxPort;
 
-    private String keyspace;
-    private String columnFamily;
-    private boolean superColumn;
+    @SuppressWarnings("rawtypes")
+    private IPartitioner partitioner;
+    private final Map<String, TokenMap> tokenMaps = new ConcurrentHashMap<String, TokenMap>();
+    private final SchemaCache schema = new SchemaCache();
+    private final ClientMetrics metrics = new ClientMetrics();
+
+    private volatile String keyspace;
+    private volatile String columnFamily;
+    private volatile boolean superColumn;
 
     public Client() {
         this(DEFAULT_THRIFT_HOST, DEFAULT_THRIFT_PORT, DEFAULT_JMX_PORT);
@@ -94,26 +146,68 @@ public class Client {
         this.jmxPort = jmxPort;
     }
 
-    public void connect()
-            throws TTransportException, IOException, InterruptedException {
+    public synchronized void connect()
+            throws TException, IOException, InterruptedException {
         if (!connected) {
             // Updating the transport to Framed one as it has been depreciated with Cassandra 0.7.0
-            transport = new TFramedTransport(new TSocket(host, thriftPort));
-            protocol = new TBinaryProtocol(transport);
-            client = new Cassandra.Client(protocol);
-            probe = new NodeProbe(host, jmxPort);
-            transport.open();
-            connected = true;
+            ConnectionPool p = new ConnectionPool(thriftPort, metrics);
+            try {
+                // open the first connection now to fail early on a wrong host or port
+                p.release(p.borrow(host));
+                NodeProbeCache c = new NodeProbeCache(jmxPort, metrics);
+                try {
+                    c.open(host);
+                } catch (IOException e) {
+                    c.close();
+                    throw e;
+                } catch (InterruptedException e) {
+                    c.close();
+                    throw e;
+                }
+                probes = c;
+                pool = p;
+                connected = true;
+                registerMetrics();
+            } finally {
+                if (!connected) {
+                    p.close();
+                }
+            }
         }
     }
 
-    public void disconnect() {
+    public synchronized void disconnect() {
         if (connected) {
-            transport.close();
+            pool.close();
+            probes.close();
+            if (async != null) {
+                async.close();
+                async = null;
+            }
+            schema.invalidateAll();
+            try {
+                metrics.unregister();
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
             connected = false;
         }
     }
 
+    /**
+     * Publish the metrics as an MBean named after the host and the Thrift port.
+     */
+    private void registerMetrics() {
+        try {
+            metrics.register(host + ":" + thriftPort);
+        } catch (InstanceAlreadyExistsException e) {
+            // another client of the same node is published already
+        } catch (JMException e) {
+            // the metrics are still shown in the GUI
+            e.printStackTrace();
+        }
+    }
+
     public void cqlConnect(String keyspace) throws ClassNotFoundException, SQLException {
         if (!cqlConnected) {
             Class.forName("org.apache.cassandra.cql.jdbc.CassandraDriver");
@@ -135,93 +229,276 @@ public class Client {
         return connected;
     }
 
+    /**
+     * @return the statistics of the calls made to the cluster
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
     public String describeClusterName() throws TException {
-        return client.describe_cluster_name();
+        ConnectionPool.Connection conn = borrow();
+        try {
+            return conn.getClient().describe_cluster_name();
+        } finally {
+            pool.release(conn);
+        }
     }
 
     public String descriveVersion() throws TException {
-        return client.describe_version();
+        ConnectionPool.Connection conn = borrow();
+        try {
+            return conn.getClient().describe_version();
+        } finally {
+            pool.release(conn);
+        }
     }
 
     public String describeSnitch() throws TException {
-        return client.describe_snitch();
+        ConnectionPool.Connection conn = borrow();
+        try {
+            return conn.getClient().describe_snitch();
+        } finally {
+            pool.release(conn);
+        }
     }
 
     public Map<String, List<String>> describeSchemaVersions()
             throws InvalidRequestException, TException {
-        return client.describe_schema_versions();
+        Map<String, List<String>> versions = null;
+        ConnectionPool.Connection conn = borrow();
+        try {
+            versions = conn.getClient().describe_schema_versions();
+        } finally {
+            pool.release(conn);
+        }
+        schema.checkVersions(versions);
+
+        return versions;
     }
 
     public String describePartitioner() throws TException {
-        return client.describe_partitioner();
+        ConnectionPool.Connection conn = borrow();
+        try {
+            return conn.getClient().describe_partitioner();
+        } finally {
+            pool.release(conn);
+        }
     }
 
     public List<TokenRange> describeRing(String keyspace)
             throws TException, InvalidRequestException {
         this.keyspace = keyspace;
-        return client.describe_ring(keyspace);
+        List<TokenRange> ranges = null;
+        ConnectionPool.Connection conn = borrow();
+        try {
+            ranges = conn.getClient().describe_ring(keyspace);
+        } finally {
+            pool.release(conn);
+        }
+
+        try {
+            tokenMaps.put(keyspace, new TokenMap(getPartitioner(), ranges));
+        } catch (ConfigurationException e) {
+            e.printStackTrace();
+        }
+
+        return ranges;
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
-    public RingNode listRing() {
-        RingNode r = new RingNode();
-        r.setRangeMap(probe.getTokenToEndpointMap());
-        List<String> ranges = new ArrayList<String>(r.getRangeMap().keySet());
-        Collections.sort(ranges);
-        r.setRanges(ranges);
+    public RingNode listRing() throws IOException, InterruptedException {
+        RingNode r = probes.execute(host, new NodeProbeCache.Operation<RingNode>("ring") {
+            @Override
+            public RingNode execute(NodeProbe probe) {
+                RingNode r = new RingNode();
+                r.setRangeMap(probe.getTokenToEndpointMap());
+                List<String> ranges = new ArrayList<String>(r.getRangeMap().keySet());
+                Collections.sort(ranges);
+                r.setRanges(ranges);
+
+                r.setLiveNodes(probe.getLiveNodes());
+                r.setDeadNodes(probe.getUnreachableNodes());
+                r.setLoadMap(probe.getLoadMap());
+
+                return r;
+            }
+        });
 
-        r.setLiveNodes(probe.getLiveNodes());
-        r.setDeadNodes(probe.getUnreachableNodes());
-        r.setLoadMap(probe.getLoadMap());
+        try {
+            describeOwnership(r);
+        } catch (Exception e) {
+            // keep the ranges sorted as strings, without ownership
+            e.printStackTrace();
+        }
 
         return r;
     }
 
-    public NodeInfo getNodeInfo(String endpoint) throws IOException, InterruptedException {
-        NodeProbe p = new NodeProbe(endpoint, jmxPort);
+    /**
+     * Sort the ranges of r in token order and compute the share
+     * of the ring owned by each of them.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void describeOwnership(RingNode r) throws ConfigurationException, TException {
+        IPartitioner p = getPartitioner();
+        Token.TokenFactory tf = p.getTokenFactory();
 
-        NodeInfo ni = new NodeInfo();
-        ni.setEndpoint(endpoint);
-        ni.setLoad(p.getLoadString());
-        ni.setGenerationNumber(p.getCurrentGenerationNumber());
-        ni.setUptime(p.getUptime() / 1000);
+        Map<Token, String> tokens = new TreeMap<Token, String>();
+        for (String range : r.getRanges()) {
+            tokens.put(tf.fromString(range), range);
+        }
+        r.setRanges(new ArrayList<String>(tokens.values()));
 
-        MemoryUsage heapUsage = p.getHeapMemoryUsage();
-        ni.setMemUsed((double) heapUsage.getUsed() / (1024 * 1024));
-        ni.setMemMax((double) heapUsage.getMax() / (1024 * 1024));
+        Map<Token, Float> ownership = p.describeOwnership(new ArrayList<Token>(tokens.keySet()));
+        Map<String, Float> ownershipMap = new HashMap<String, Float>();
+        for (Entry<Token, Float> e : ownership.entrySet()) {
+            ownershipMap.put(tokens.get(e.getKey()), e.getValue());
+        }
+        r.setOwnershipMap(ownershipMap);
+    }
 
-        return ni;
+    public NodeInfo getNodeInfo(final String endpoint) throws IOException, InterruptedException {
+        return probes.execute(endpoint, new NodeProbeCache.Operation<NodeInfo>("info") {
+            @Override
+            public NodeInfo execute(NodeProbe p) {
+                NodeInfo ni = new NodeInfo();
+                ni.setEndpoint(endpoint);
+                ni.setLoad(p.getLoadString());
+                ni.setGenerationNumber(p.getCurrentGenerationNumber());
+                ni.setUptime(p.getUptime() / 1000);
+
+                MemoryUsage heapUsage = p.getHeapMemoryUsage();
+                ni.setMemUsed((double) heapUsage.getUsed() / (1024 * 1024));
+                ni.setMemMax((double) heapUsage.getMax() / (1024 * 1024));
+
+                return ni;
+            }
+        });
     }
 
     public List<Tpstats> getTpstats(String endpoint) throws IOException, InterruptedException {
-        List<Tpstats> l = new ArrayList<Tpstats>();
+        return probes.execute(endpoint, new NodeProbeCache.Operation<List<Tpstats>>("tpstats") {
+            @Override
+            public List<Tpstats> execute(NodeProbe p) {
+                List<Tpstats> l = new ArrayList<Tpstats>();
+
+                Iterator<Entry<String, JMXEnabledThreadPoolExecutorMBean>> threads = p.getThreadPoolMBeanProxies();
+                for (;threads.hasNext();) {
+                    Entry<String, JMXEnabledThreadPoolExecutorMBean> thread = threads.next();
+
+                    Tpstats tp = new Tpstats();
+                    tp.setPoolName(thread.getKey());
+
+                    IExecutorMBean threadPoolProxy = thread.getValue();
+                    tp.setActiveCount(threadPoolProxy.getActiveCount());
+                    tp.setPendingTasks(threadPoolProxy.getPendingTasks());
+                    tp.setCompletedTasks(threadPoolProxy.getCompletedTasks());
+                    l.add(tp);
+                }
+
+                return l;
+            }
+        });
+    }
 
-        NodeProbe p = new NodeProbe(endpoint, jmxPort);
-        Iterator<Entry<String, JMXEnabledThreadPoolExecutorMBean>> threads = p.getThreadPoolMBeanProxies();
-        for (;threads.hasNext();) {
-            Entry<String, JMXEnabledThreadPoolExecutorMBean> thread = threads.next();
+    /**
+     * Read every keyspace definition from the cluster and cache them.
+     */
+    public List<KsDef> getKeyspaces()
+            throws TException, InvalidRequestException {
+        checkSchema();
 
-            Tpstats tp = new Tpstats();
-            tp.setPoolName(thread.getKey());
+        List<KsDef> l = null;
+        ConnectionPool.Connection conn = borrow();
+        try {
+            l = conn.getClient().describe_keyspaces();
+        } finally {
+            pool.release(conn);
+        }
 
-            IExecutorMBean threadPoolProxy = thread.getValue();
-            tp.setActiveCount(threadPoolProxy.getActiveCount());
-            tp.setPendingTasks(threadPoolProxy.getPendingTasks());
-            tp.setCompletedTasks(threadPoolProxy.getCompletedTasks());
-            l.add(tp);
+        for (KsDef ksDef : l) {
+            schema.put(ksDef);
         }
 
         return l;
     }
 
-    public List<KsDef> getKeyspaces()
-            throws TException, InvalidRequestException {
-        return client.describe_keyspaces();
+    /**
+     * @return the cached definition of keyspaceName, read from the
+     *         cluster if it is not cached or the schema has changed
+     */
+    public KsDef describeKeyspace(String keyspaceName)
+            throws NotFoundException, InvalidRequestException, TException {
+        checkSchema();
+
+        KsDef ksDef = schema.getKeyspace(keyspaceName);
+        if (ksDef != null) {
+            return ksDef;
+        }
+
+        ConnectionPool.Connection conn = borrow();
+        try {
+            ksDef = conn.getClient().describe_keyspace(keyspaceName);
+        } finally {
+            pool.release(conn);
+        }
+        schema.put(ksDef);
+
+        return ksDef;
     }
 
-    public KsDef describeKeyspace(String keyspaceName)
+    /**
+     * Drop the cached schema, so it is read again from the cluster.
+     */
+    public void invalidateSchema() {
+        schema.invalidateAll();
+    }
+
+    /**
+     * @return the cached definition of columnFamily, null if keyspace has no such column family
+     */
+    public CfDef describeColumnFamily(String keyspace, String columnFamily)
             throws NotFoundException, InvalidRequestException, TException {
-        return client.describe_keyspace(keyspaceName);
+        KsDef ksDef = describeKeyspace(keyspace);
+        if (schema.contains(keyspace)) {
+            return schema.getColumnFamily(keyspace, columnFamily);
+        }
+
+        // the cache has been dropped since
+        for (CfDef cfDef : ksDef.getCf_defs()) {
+            if (columnFamily.equalsIgnoreCase(cfDef.getName())) {
+                return cfDef;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the codecs of the names and values of columnFamily,
+     *         UTF-8 for all of them if it can not be described
+     */
+    public ColumnFamilyCodecs getCodecs(String keyspace, String columnFamily)
+            throws InvalidRequestException, TException {
+        CfDef cfDef = null;
+        try {
+            cfDef = describeColumnFamily(keyspace, columnFamily);
+        } catch (NotFoundException e) {
+            // no such keyspace
+        }
+
+        return cfDef == null ? ColumnFamilyCodecs.DEFAULT : new ColumnFamilyCodecs(cfDef);
+    }
+
+    /**
+     * Drop the cached schema if the schema versions of the cluster have
+     * changed since they were last checked, at most every SCHEMA_CHECK_INTERVAL.
+     */
+    private void checkSchema() throws InvalidRequestException, TException {
+        if (System.currentTimeMillis() - schema.getChecked() >= SCHEMA_CHECK_INTERVAL) {
+            describeSchemaVersions();
+        }
     }
 
     public void addKeyspace(String keyspaceName,
@@ -252,7 +529,13 @@ public class Client {
         }
 
         ksDef.setStrategy_options(strategyOptions);
-        client.system_add_keyspace(ksDef);
+        ConnectionPool.Connection conn = borrow();
+        try {
+            conn.getClient().system_add_keyspace(ksDef);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void updateKeyspace(String keyspaceName,
@@ -270,12 +553,24 @@ public class Client {
         strategyOptions.put("replication_factor", String.valueOf(replicationFactgor));
         ksDef.setStrategy_options(strategyOptions);
 
-        client.system_update_keyspace(ksDef);
+        ConnectionPool.Connection conn = borrow();
+        try {
+            conn.getClient().system_update_keyspace(ksDef);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void dropKeyspace(String keyspaceName)
             throws InvalidRequestException, SchemaDisagreementException, TException {
-        client.system_drop_keyspace(keyspaceName);
+        ConnectionPool.Connection conn = borrow();
+        try {
+            conn.getClient().system_drop_keyspace(keyspaceName);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void addColumnFamily(String keyspaceName,
@@ -368,8 +663,13 @@ public class Client {
             cfDef.setMax_compaction_threshold(Integer.valueOf(cf.getMaxCompactionThreshold()));
         }
 
-        client.set_keyspace(keyspaceName);
-        client.system_add_column_family(cfDef);
+        ConnectionPool.Connection conn = borrow(keyspaceName);
+        try {
+            conn.getClient().system_add_column_family(cfDef);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void updateColumnFamily(String keyspaceName,
@@ -463,23 +763,37 @@ public class Client {
             cfDef.setMax_compaction_threshold(Integer.valueOf(cf.getMaxCompactionThreshold()));
         }
 
-        client.set_keyspace(keyspaceName);
-        client.system_update_column_family(cfDef);
+        ConnectionPool.Connection conn = borrow(keyspaceName);
+        try {
+            conn.getClient().system_update_column_family(cfDef);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void dropColumnFamily(String keyspaceName, String columnFamilyName)
             throws InvalidRequestException, TException, SchemaDisagreementException {
         this.keyspace = keyspaceName;
-        client.set_keyspace(keyspaceName);
-        client.system_drop_column_family(columnFamilyName);
+        ConnectionPool.Connection conn = borrow(keyspaceName);
+        try {
+            conn.getClient().system_drop_column_family(columnFamilyName);
+        } finally {
+            pool.release(conn);
+            schema.invalidate(keyspaceName);
+        }
     }
 
     public void truncateColumnFamily(String keyspaceName, String columnFamilyName)
             throws InvalidRequestException, TException, UnavailableException, TimedOutException {
         this.keyspace = keyspaceName;
         this.columnFamily = columnFamilyName;
-        client.set_keyspace(keyspaceName);
-        client.truncate(columnFamilyName);
+        ConnectionPool.Connection conn = borrow(keyspaceName);
+        try {
+            conn.getClient().truncate(columnFamilyName);
+        } finally {
+            pool.release(conn);
+        }
     }
 
     /**
@@ -498,22 +812,20 @@ public class Client {
         this.keyspace = keyspace;
         this.columnFamily = columnFamily;
 
-        for (Iterator<CfDef> cfIterator = client.describe_keyspace(keyspace).getCf_defsIterator(); cfIterator.hasNext();) {
-            CfDef next = cfIterator.next();
-            if (columnFamily.equalsIgnoreCase(next.getName())) {
-                Map<String, String> columnMetadata = new HashMap<String, String>();
-
-                CfDef._Fields[] fields = CfDef._Fields.values();
+        CfDef next = describeColumnFamily(keyspace, columnFamily);
+        if (next != null) {
+            Map<String, String> columnMetadata = new HashMap<String, String>();
 
-                for (int i = 0; i < fields.length; i++) {
-                    CfDef._Fields field = fields[i];
-                    // using string concat to avoin NPE, if the value is not null
-                    // need to find an elegant solution
-                    columnMetadata.put(field.name(), next.getFieldValue(field)+"");
-                }
+            CfDef._Fields[] fields = CfDef._Fields.values();
 
-                return columnMetadata;
+            for (int i = 0; i < fields.length; i++) {
+                CfDef._Fields field = fields[i];
+                // using string concat to avoin NPE, if the value is not null
+                // need to find an elegant solution
+                columnMetadata.put(field.name(), next.getFieldValue(field)+"");
             }
+
+            return columnMetadata;
         }
         System.out.println("returning null");
         return null;
@@ -524,39 +836,37 @@ public class Client {
         this.keyspace = keyspace;
         this.columnFamily = columnFamily;
 
-        for (Iterator<CfDef> cfIterator = client.describe_keyspace(keyspace).getCf_defsIterator(); cfIterator.hasNext();) {
-            CfDef cd = cfIterator.next();
-            if (columnFamily.equalsIgnoreCase(cd.getName())) {
-                ColumnFamily cf = new ColumnFamily();
-                cf.setId(cd.getId());
-                cf.setColumnFamilyName(cd.getName());
-                cf.setColumnType(cd.getColumn_type());
-                cf.setComparator(cd.getComparator_type());
-                cf.setSubcomparator(cd.getSubcomparator_type());
-                cf.setComment(cd.getComment());
-                cf.setRowsCached(String.valueOf(cd.getRow_cache_size()));
-                cf.setRowCacheSavePeriod(String.valueOf(cd.getRow_cache_save_period_in_seconds()));
-                cf.setKeysCached(String.valueOf(cd.getKey_cache_size()));
-                cf.setKeyCacheSavePeriod(String.valueOf(cd.getKey_cache_save_period_in_seconds()));
-                cf.setReadRepairChance(String.valueOf(cd.getRead_repair_chance()));
-                cf.setGcGrace(String.valueOf(cd.getGc_grace_seconds()));
-                cf.setMemtableOperations(String.valueOf(cd.getMemtable_operations_in_millions()));
-                cf.setMemtableThroughput(String.valueOf(cd.getMemtable_throughput_in_mb()));
-                cf.setMemtableFlushAfter(String.valueOf(cd.getMemtable_flush_after_mins()));
-                cf.setDefaultValidationClass(cd.getDefault_validation_class());
-                cf.setMinCompactionThreshold(String.valueOf(cd.getMin_compaction_threshold()));
-                cf.setMaxCompactionThreshold(String.valueOf(cd.getMax_compaction_threshold()));
-                for (ColumnDef cdef : cd.getColumn_metadata()) {
-                    ColumnFamilyMetaData cfmd = new ColumnFamilyMetaData();
-                    cfmd.setColumnName(new String(cdef.getName(), UTF8));
-                    cfmd.setValiDationClass(cdef.getValidation_class());
-                    cfmd.setIndexType(cdef.getIndex_type());
-                    cfmd.setIndexName(cdef.getIndex_name());
-                    cf.getMetaDatas().add(cfmd);
-                }
-
-                return cf;
+        CfDef cd = describeColumnFamily(keyspace, columnFamily);
+        if (cd != null) {
+            ColumnFamily cf = new ColumnFamily();
+            cf.setId(cd.getId());
+            cf.setColumnFamilyName(cd.getName());
+            cf.setColumnType(cd.getColumn_type());
+            cf.setComparator(cd.getComparator_type());
+            cf.setSubcomparator(cd.getSubcomparator_type());
+            cf.setComment(cd.getComment());
+            cf.setRowsCached(String.valueOf(cd.getRow_cache_size()));
+            cf.setRowCacheSavePeriod(String.valueOf(cd.getRow_cache_save_period_in_seconds()));
+            cf.setKeysCached(String.valueOf(cd.getKey_cache_size()));
+            cf.setKeyCacheSavePeriod(String.valueOf(cd.getKey_cache_save_period_in_seconds()));
+            cf.setReadRepairChance(String.valueOf(cd.getRead_repair_chance()));
+            cf.setGcGrace(String.valueOf(cd.getGc_grace_seconds()));
+            cf.setMemtableOperations(String.valueOf(cd.getMemtable_operations_in_millions()));
+            cf.setMemtableThroughput(String.valueOf(cd.getMemtable_throughput_in_mb()));
+            cf.setMemtableFlushAfter(String.valueOf(cd.getMemtable_flush_after_mins()));
+            cf.setDefaultValidationClass(cd.getDefault_validation_class());
+            cf.setMinCompactionThreshold(String.valueOf(cd.getMin_compaction_threshold()));
+            cf.setMaxCompactionThreshold(String.valueOf(cd.getMax_compaction_threshold()));
+            for (ColumnDef cdef : cd.getColumn_metadata()) {
+                ColumnFamilyMetaData cfmd = new ColumnFamilyMetaData();
+                cfmd.setColumnName(new String(cdef.getName(), UTF8));
+                cfmd.setValiDationClass(cdef.getValidation_class());
+                cfmd.setIndexType(cdef.getIndex_type());
+                cfmd.setIndexName(cdef.getIndex_name());
+                cf.getMetaDatas().add(cfmd);
             }
+
+            return cf;
         }
 
         System.out.println("returning null");
@@ -569,32 +879,29 @@ public class Client {
 
         Set<String> s = new TreeSet<String>();
 
-        for (Iterator<CfDef> cfIterator = client.describe_keyspace(keyspace).getCf_defsIterator(); cfIterator.hasNext();) {
+        for (Iterator<CfDef> cfIterator = describeKeyspace(keyspace).getCf_defsIterator(); cfIterator.hasNext();) {
            CfDef next =  cfIterator.next();
            s.add(next.getName());
         }
         return s;
     }
 
-    public int countColumnsRecord(String keyspace, String columnFamily, String key)
+    /**
+     * Count the columns of key, or its super columns in a super column family,
+     * paging through them with {@link RowCounter#DEFAULT_BATCH_SIZE} columns per call.
+     */
+    public long countColumnsRecord(String keyspace, String columnFamily, String key)
             throws InvalidRequestException, UnavailableException, TimedOutException, TException {
-        this.keyspace = keyspace;
-        this.columnFamily = columnFamily;
-
-        ColumnParent colParent = new ColumnParent(columnFamily);
-        //TODO - Verify if its working fine
-        return client.get_count(ByteBuffer.wrap(key.getBytes()), colParent, null, ConsistencyLevel.ONE);
+        return getRowCounter(keyspace, columnFamily, RowCounter.DEFAULT_BATCH_SIZE).countColumns(key, null, null);
     }
 
-    public int countSuperColumnsRecord(String keyspace, String columnFamily, String superColumn, String key)
+    /**
+     * Count the sub columns of superColumn in key,
+     * paging through them with {@link RowCounter#DEFAULT_BATCH_SIZE} columns per call.
+     */
+    public long countSuperColumnsRecord(String keyspace, String columnFamily, String superColumn, String key)
             throws InvalidRequestException, UnavailableException, TimedOutException, TException {
-        this.keyspace = keyspace;
-        this.columnFamily = columnFamily;
-
-        ColumnParent colParent = new ColumnParent(columnFamily);
-        colParent.setSuper_column(superColumn.getBytes());
-        // TODO - verify if its working fine
-        return client.get_count(ByteBuffer.wrap(key.getBytes()), colParent, null, ConsistencyLevel.ONE);
+        return getRowCounter(keyspace, columnFamily, RowCounter.DEFAULT_BATCH_SIZE).countColumns(key, superColumn, null);
     }
 
     public Date insertColumn(String keyspace,
@@ -607,7 +914,7 @@ public class Client {
         this.keyspace = keyspace;
         this.columnFamily = columnFamily;
 
-        ColumnParent parent;
+        final ColumnParent parent;
 
         if(superColumn == null) {
            parent = new ColumnParent(columnFamily);
@@ -615,14 +922,24 @@ public class Client {
             parent = new ColumnParent(superColumn);
         }
 
+        ColumnFamilyCodecs codecs = getCodecs(keyspace, columnFamily);
+        byte[] name = (superColumn == null ? codecs.getNameCodec() : codecs.getSubNameCodec()).encode(column);
+
         long timestamp = System.currentTimeMillis() * 1000;
-        Column col = new Column();
-        col.setName(column.getBytes(UTF8));
-        col.setValue(value.getBytes(UTF8));
+        final Column col = new Column();
+        col.setName(name);
+        col.setValue(codecs.getValueCodec(name).encode(value));
         col.setTimestamp(timestamp);
 
-        client.set_keyspace(keyspace);
-        client.insert(ByteBuffer.wrap(key.getBytes()), parent, col, ConsistencyLevel.ONE);
+        final ByteBuffer k = ByteBuffer.wrap(key.getBytes());
+        executeOnReplica(keyspace, k, new Operation<Void>() {
+            @Override
+            public Void execute(Cassandra.Iface client)
+                    throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+                client.insert(k, parent, col, ConsistencyLevel.ONE);
+                return null;
+            }
+        });
 
         return new Date(timestamp / 1000);
     }
@@ -633,20 +950,16 @@ public class Client {
         this.columnFamily = columnFamily;
 
         ColumnPath colPath = new ColumnPath(columnFamily);
-        long timestamp = System.currentTimeMillis() * 1000;
 
-        client.set_keyspace(keyspace);
-        client.remove(ByteBuffer.wrap(key.getBytes()), colPath, timestamp, ConsistencyLevel.ONE);
+        remove(keyspace, key, colPath);
     }
 
     public void removeSuperColumn(String keyspace, String columnFamily, String key, String superColumn)
             throws InvalidRequestException, UnavailableException, TimedOutException, TException {
         ColumnPath colPath = new ColumnPath(columnFamily);
-        colPath.setSuper_column(superColumn.getBytes());
-        long timestamp = System.currentTimeMillis() * 1000;
+        colPath.setSuper_column(getCodecs(keyspace, columnFamily).getNameCodec().encode(superColumn));
 
-        client.set_keyspace(keyspace);
-        client.remove(ByteBuffer.wrap(key.getBytes()), colPath, timestamp, ConsistencyLevel.ONE);
+        remove(keyspace, key, colPath);
     }
 
     public void removeColumn(String keyspace, String columnFamily, String key, String column)
@@ -655,11 +968,9 @@ public class Client {
         this.columnFamily = columnFamily;
 
         ColumnPath colPath = new ColumnPath(columnFamily);
-        colPath.setColumn(column.getBytes());
-        long timestamp = System.currentTimeMillis() * 1000;
+        colPath.setColumn(getCodecs(keyspace, columnFamily).getNameCodec().encode(column));
 
-        client.set_keyspace(keyspace);
-        client.remove(ByteBuffer.wrap(key.getBytes()), colPath, timestamp, ConsistencyLevel.ONE);
+        remove(keyspace, key, colPath);
     }
 
     public void removeColumn(String keyspace, String columnFamily, String key, String superColumn, String column)
@@ -667,130 +978,674 @@ public class Client {
         this.keyspace = keyspace;
         this.columnFamily = columnFamily;
 
+        ColumnFamilyCodecs codecs = getCodecs(keyspace, columnFamily);
         ColumnPath colPath = new ColumnPath(columnFamily);
-        colPath.setSuper_column(superColumn.getBytes());
-        colPath.setColumn(column.getBytes());
-        long timestamp = System.currentTimeMillis() * 1000;
+        colPath.setSuper_column(codecs.getNameCodec().encode(superColumn));
+        colPath.setColumn(codecs.getSubNameCodec().encode(column));
+
+        remove(keyspace, key, colPath);
+    }
 
-        client.set_keyspace(keyspace);
-        client.remove(ByteBuffer.wrap(key.getBytes()), colPath, timestamp, ConsistencyLevel.ONE);
+    /**
+     * Apply a batch of mutations with one batch_mutate call, sent to
+     * a replica of the first key of the batch.
+     *
+     * @param mutations key to column family name to mutations
+     */
+    void batchMutate(String keyspace, final Map<ByteBuffer, Map<String, List<Mutation>>> mutations)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        executeOnReplica(keyspace, mutations.keySet().iterator().next(), new Operation<Void>() {
+            @Override
+            public Void execute(Cassandra.Iface client)
+                    throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+                client.batch_mutate(mutations, ConsistencyLevel.ONE);
+                return null;
+            }
+        });
+    }
+
+    private void remove(String keyspace, String key, final ColumnPath colPath)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        final long timestamp = System.currentTimeMillis() * 1000;
+
+        final ByteBuffer k = ByteBuffer.wrap(key.getBytes());
+        executeOnReplica(keyspace, k, new Operation<Void>() {
+            @Override
+            public Void execute(Cassandra.Iface client)
+                    throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+                client.remove(k, colPath, timestamp, ConsistencyLevel.ONE);
+                return null;
+            }
+        });
     }
 
     public Map<String, Key> getKey(String keyspace, String columnFamily, String superColumn, String key)
             throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        return getKey(keyspace, columnFamily, superColumn, key, null, DEFAULT_COLUMN_COUNT);
+    }
+
+    /**
+     * Retrieve a slice of at most columnCount columns of a key.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param superColumn
+     * @param key
+     * @param startColumn raw name of the last column already fetched, null to start at the first column
+     * @param columnCount
+     * @return
+     */
+    public Map<String, Key> getKey(String keyspace,
+                                   String columnFamily,
+                                   String superColumn,
+                                   String key,
+                                   byte[] startColumn,
+                                   int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
         this.keyspace = keyspace;
         this.columnFamily = columnFamily;
 
         Map<String, Key> m = new TreeMap<String, Key>();
 
-        ColumnParent columnParent = new ColumnParent(columnFamily);
+        // a failed slice is thrown, an empty map would look like a complete row
+        Key k = getKeySlice(keyspace, columnFamily, superColumn, key, startColumn, columnCount);
+        if (k != null) {
+            m.put(k.getName(), k);
+        }
+
+        return m;
+    }
+
+    /**
+     * Retrieve a slice of at most columnCount columns of a key,
+     * without touching the keyspace and columnFamily properties.
+     *
+     * @return the slice, null if the key has no columns after startColumn
+     */
+    Key getKeySlice(String keyspace,
+                    String columnFamily,
+                    String superColumn,
+                    String key,
+                    byte[] startColumn,
+                    int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        ColumnFamilyCodecs codecs = getCodecs(keyspace, columnFamily);
+        List<ColumnOrSuperColumn> l = getSlice(keyspace,
+                                               columnFamily,
+                                               superColumn == null ? null : codecs.getNameCodec().encode(superColumn),
+                                               ByteBuffer.wrap(key.getBytes()),
+                                               startColumn,
+                                               columnCount);
+
+        if (l.isEmpty()) {
+            return null;
+        }
+
+        Key k = toKey(key, l, codecs);
+        k.setTruncated(l.size() >= columnCount);
+
+        return k;
+    }
+
+    /**
+     * Retrieve at most columnCount columns of key after startColumn, or
+     * the sub columns of superColumn when it is not null.
+     *
+     * @return the columns, without startColumn itself
+     */
+    List<ColumnOrSuperColumn> getSlice(String keyspace,
+                                       String columnFamily,
+                                       byte[] superColumn,
+                                       final ByteBuffer key,
+                                       byte[] startColumn,
+                                       int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        final ColumnParent columnParent = new ColumnParent(columnFamily);
         if (superColumn != null) {
-            columnParent.setSuper_column(superColumn.getBytes());
+            columnParent.setSuper_column(superColumn);
+        }
+
+        boolean resume = startColumn != null && startColumn.length > 0;
+        final SlicePredicate predicate =
+            slicePredicate(resume ? startColumn : new byte[0], resume ? columnCount + 1 : columnCount);
+
+        List<ColumnOrSuperColumn> l = executeOnReplica(keyspace, key, new Operation<List<ColumnOrSuperColumn>>() {
+            @Override
+            public List<ColumnOrSuperColumn> execute(Cassandra.Iface client)
+                    throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+                return client.get_slice(key, columnParent, predicate, ConsistencyLevel.ONE);
+            }
+        });
+
+        // the slice start is inclusive, so skip the column fetched by the previous slice
+        if (resume && !l.isEmpty() && Arrays.equals(startColumn, columnName(l.get(0)))) {
+            l = l.subList(1, l.size());
+        } else if (l.size() > columnCount) {
+            l = l.subList(0, columnCount);
         }
 
+        return l;
+    }
+
+    public Map<String, Key> listKeyAndValues(String keyspace, String columnFamily, String startKey, String endKey, int rows)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        return listKeyAndValues(keyspace, columnFamily, startKey, endKey, rows, DEFAULT_COLUMN_COUNT);
+    }
+
+    public Map<String, Key> listKeyAndValues(String keyspace,
+                                             String columnFamily,
+                                             String startKey,
+                                             String endKey,
+                                             int rows,
+                                             int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        Map<String, Key> m = new TreeMap<String, Key>();
+
+        List<KeySlice> keySlices = null;
+        try {
+            keySlices = getRangeSlices(keyspace,
+                                       columnFamily,
+                                       ByteBuffer.wrap(startKey.getBytes()),
+                                       ByteBuffer.wrap(endKey.getBytes()),
+                                       rows,
+                                       columnCount);
+        } catch (UnavailableException e) {
+            return m;
+        }
+
+        ColumnFamilyCodecs codecs = getCodecs(keyspace, columnFamily);
+        for (KeySlice keySlice : keySlices) {
+            Key key = toKey(new String(keySlice.getKey()), keySlice.getColumns(), codecs);
+            key.setTruncated(keySlice.getColumnsSize() >= columnCount);
+            m.put(key.getName(), key);
+        }
+
+        return m;
+    }
+
+    /**
+     * Create a pager which walks the key range from startKey to endKey
+     * fetching at most pageSize rows per get_range_slices call.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param startKey first key of the range, empty for the beginning of the ring
+     * @param endKey last key of the range, empty for the end of the ring
+     * @param pageSize number of rows per page
+     * @param columnCount number of columns fetched per row
+     * @return the pager, positioned before the first page
+     */
+    public KeyRangePager getKeyRangePager(String keyspace,
+                                          String columnFamily,
+                                          String startKey,
+                                          String endKey,
+                                          int pageSize,
+                                          int columnCount) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+
+        return new KeyRangePager(this,
+                                 keyspace,
+                                 columnFamily,
+                                 ByteBuffer.wrap(startKey.getBytes()),
+                                 ByteBuffer.wrap(endKey.getBytes()),
+                                 pageSize,
+                                 columnCount);
+    }
+
+    List<KeySlice> getRangeSlices(String keyspace,
+                                  String columnFamily,
+                                  ByteBuffer startKey,
+                                  ByteBuffer endKey,
+                                  int rows,
+                                  int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+
+        ColumnParent columnParent = new ColumnParent(columnFamily);
+
+        KeyRange keyRange = new KeyRange(rows);
+        keyRange.setStart_key(startKey);
+        keyRange.setEnd_key(endKey);
+
+        ConnectionPool.Connection conn = borrow(keyspace);
+        try {
+            return conn.getClient().get_range_slices(columnParent, slicePredicate(new byte[0], columnCount), keyRange, ConsistencyLevel.ONE);
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * Create a pager which walks the rows matching expressions
+     * fetching at most pageSize rows per get_indexed_slices call.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param expressions the expressions, one of them an EQ on an indexed column
+     * @param pageSize number of rows per page
+     * @param columnCount number of columns fetched per row
+     * @return the pager, positioned before the first page
+     */
+    public IndexQueryPager getIndexQueryPager(String keyspace,
+                                              String columnFamily,
+                                              List<IndexExpression> expressions,
+                                              int pageSize,
+                                              int columnCount) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+
+        return new IndexQueryPager(this, keyspace, columnFamily, expressions, pageSize, columnCount);
+    }
+
+    List<KeySlice> getIndexedSlices(String keyspace,
+                                    String columnFamily,
+                                    List<IndexExpression> expressions,
+                                    ByteBuffer startKey,
+                                    int rows,
+                                    int columnCount)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        IndexClause indexClause = new IndexClause(expressions, startKey, rows);
+
+        ConnectionPool.Connection conn = borrow(keyspace);
+        try {
+            return conn.getClient().get_indexed_slices(new ColumnParent(columnFamily),
+                                                       indexClause,
+                                                       slicePredicate(new byte[0], columnCount),
+                                                       ConsistencyLevel.ONE);
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * @return the names of the indexed columns of columnFamily, decoded by its comparator
+     */
+    public List<String> getIndexedColumns(String keyspace, String columnFamily)
+            throws NotFoundException, InvalidRequestException, TException {
+        List<String> l = new ArrayList<String>();
+        CfDef cfDef = describeColumnFamily(keyspace, columnFamily);
+        if (cfDef == null || cfDef.getColumn_metadata() == null) {
+            return l;
+        }
+
+        ColumnFamilyCodecs codecs = new ColumnFamilyCodecs(cfDef);
+        for (ColumnDef cd : cfDef.getColumn_metadata()) {
+            if (cd.getIndex_type() != null) {
+                l.add(codecs.getNameCodec().decode(cd.getName()));
+            }
+        }
+
+        return l;
+    }
+
+    /**
+     * Create a reader which fetches a list of keys with multiget_slice
+     * calls of batchSize keys, maxInFlight of them at the same time.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param batchSize number of keys per multiget_slice call
+     * @param columnCount number of columns fetched per row
+     * @param maxInFlight number of calls running at the same time
+     * @return the reader
+     */
+    public MultiKeyReader getMultiKeyReader(String keyspace,
+                                            String columnFamily,
+                                            int batchSize,
+                                            int columnCount,
+                                            int maxInFlight) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+
+        return new MultiKeyReader(this, keyspace, columnFamily, batchSize, columnCount, maxInFlight);
+    }
+
+    /**
+     * @return the nodes holding a replica of key, empty if the ring is unknown
+     */
+    List<String> getReplicas(String keyspace, ByteBuffer key) {
+        return getTokenMap(keyspace).getReplicas(key);
+    }
+
+    /**
+     * Create a scanner which reads every row of a column family,
+     * paging through the ranges of the ring in parallel.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param pageSize number of rows per get_range_slices call
+     * @param columnCount number of columns fetched per row
+     * @param threads number of ranges read at the same time
+     * @return the scanner
+     */
+    public RangeScanner getRangeScanner(String keyspace,
+                                        String columnFamily,
+                                        int pageSize,
+                                        int columnCount,
+                                        int threads) {
+        return new RangeScanner(this, keyspace, columnFamily, pageSize, columnCount, threads);
+    }
+
+    /**
+     * Create a counter which counts the columns of a row or the rows of a
+     * column family, batchSize columns or rows per call.
+     *
+     * @param keyspace
+     * @param columnFamily
+     * @param batchSize number of columns per get_slice call, or rows per get_range_slices call
+     * @return the counter
+     */
+    public RowCounter getRowCounter(String keyspace, String columnFamily, int batchSize) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+
+        return new RowCounter(this, keyspace, columnFamily, batchSize);
+    }
+
+    /**
+     * Fetch at most columnCount columns of key, after startColumn when it is not empty,
+     * without waiting for the result.
+     */
+    AsyncResult<List<ColumnOrSuperColumn>> getSliceAsync(String keyspace,
+                                                         String columnFamily,
+                                                         ByteBuffer key,
+                                                         byte[] startColumn,
+                                                         int columnCount)
+            throws IOException {
+        return getAsyncClient().getSlice(getHosts(getTokenMap(keyspace).getHosts(key, host)),
+                                         keyspace,
+                                         key,
+                                         new ColumnParent(columnFamily),
+                                         slicePredicate(startColumn, columnCount),
+                                         ConsistencyLevel.ONE);
+    }
+
+    /**
+     * Fetch at most rows rows of the token range (startToken, endToken],
+     * from one of endpoints when they can be reached, without waiting for the result.
+     */
+    AsyncResult<List<KeySlice>> getRangeSlicesAsync(String keyspace,
+                                                    String columnFamily,
+                                                    String startToken,
+                                                    String endToken,
+                                                    List<String> endpoints,
+                                                    int rows,
+                                                    int columnCount)
+            throws IOException {
+        KeyRange keyRange = new KeyRange(rows);
+        keyRange.setStart_token(startToken);
+        keyRange.setEnd_token(endToken);
+
+        return getAsyncClient().getRangeSlices(getHosts(endpoints),
+                                               keyspace,
+                                               new ColumnParent(columnFamily),
+                                               slicePredicate(new byte[0], columnCount),
+                                               keyRange,
+                                               ConsistencyLevel.ONE);
+    }
+
+    /**
+     * Fetch at most columnCount columns of each of keys with one multiget_slice
+     * call, sent to a replica of the first key, without waiting for the result.
+     */
+    AsyncResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> multigetSliceAsync(String keyspace,
+                                                                               String columnFamily,
+                                                                               List<ByteBuffer> keys,
+                                                                               int columnCount)
+            throws IOException {
+        return getAsyncClient().multigetSlice(getHosts(getTokenMap(keyspace).getHosts(keys.get(0), host)),
+                                              keyspace,
+                                              keys,
+                                              new ColumnParent(columnFamily),
+                                              slicePredicate(new byte[0], columnCount),
+                                              ConsistencyLevel.ONE);
+    }
+
+    /**
+     * Apply a batch of mutations with one batch_mutate call, sent to
+     * a replica of the first key of the batch, without waiting for the result.
+     *
+     * @param mutations key to column family name to mutations
+     */
+    AsyncResult<Void> batchMutateAsync(String keyspace, Map<ByteBuffer, Map<String, List<Mutation>>> mutations)
+            throws IOException {
+        ByteBuffer first = mutations.keySet().iterator().next();
+        return getAsyncClient().batchMutate(getHosts(getTokenMap(keyspace).getHosts(first, host)),
+                                            keyspace,
+                                            mutations,
+                                            ConsistencyLevel.ONE);
+    }
+
+    /**
+     * Wait for the result of an asynchronous request, throwing
+     * the exception of the request if it failed.
+     */
+    static <T> T await(AsyncResult<T> result)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InvalidRequestException) {
+                throw (InvalidRequestException) cause;
+            } else if (cause instanceof UnavailableException) {
+                throw (UnavailableException) cause;
+            } else if (cause instanceof TimedOutException) {
+                throw (TimedOutException) cause;
+            } else if (cause instanceof TException) {
+                throw (TException) cause;
+            }
+            // connection errors and timeouts of the async transport
+            throw new TTransportException(cause);
+        }
+    }
+
+    private synchronized AsyncClient getAsyncClient() throws IOException {
+        if (!connected) {
+            throw new IOException("not connected to " + host);
+        } else if (async == null) {
+            async = new AsyncClient(thriftPort, metrics);
+        }
+
+        return async;
+    }
+
+    /**
+     * Split the token range (startToken, endToken] in sub ranges
+     * of about keysPerSplit keys, with describe_splits.
+     *
+     * @return the tokens bounding the sub ranges, startToken first and endToken last
+     */
+    List<String> describeSplits(String keyspace,
+                                final String columnFamily,
+                                final String startToken,
+                                final String endToken,
+                                List<String> endpoints,
+                                final int keysPerSplit)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        return execute(getHosts(endpoints), keyspace, new Operation<List<String>>() {
+            @Override
+            public List<String> execute(Cassandra.Iface client)
+                    throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+                return client.describe_splits(columnFamily, startToken, endToken, keysPerSplit);
+            }
+        });
+    }
+
+    private static SlicePredicate slicePredicate(byte[] startColumn, int columnCount) {
         SliceRange sliceRange = new SliceRange();
-        sliceRange.setStart(new byte[0]);
+        sliceRange.setStart(startColumn);
         sliceRange.setFinish(new byte[0]);
+        sliceRange.setCount(columnCount);
 
         SlicePredicate slicePredicate = new SlicePredicate();
         slicePredicate.setSlice_range(sliceRange);
 
-        List<ColumnOrSuperColumn> l = null;
-        try {
-            l = client.get_slice(ByteBuffer.wrap(key.getBytes()), columnParent, slicePredicate, ConsistencyLevel.ONE);
-        } catch (Exception e) {
-            return m;
-        }
+        return slicePredicate;
+    }
+
+    static byte[] columnName(ColumnOrSuperColumn column) {
+        return column.isSetSuper_column() ? column.getSuper_column().getName() : column.getColumn().getName();
+    }
+
+    /**
+     * Names are decoded here, as they are the keys of the maps of the key;
+     * values are decoded by their cells when they are asked for.
+     */
+    static Key toKey(String keyName, List<ColumnOrSuperColumn> columns, ColumnFamilyCodecs codecs)
+            throws UnsupportedEncodingException {
+        Key key = new Key(keyName, new TreeMap<String, SColumn>(), new TreeMap<String, Cell>());
 
-        Key k = new Key(key, new TreeMap<String, SColumn>(), new TreeMap<String, Cell>());
-        for (ColumnOrSuperColumn column : l) {
-            k.setSuperColumn(column.isSetSuper_column());
+        for (ColumnOrSuperColumn column : columns) {
+            key.setSuperColumn(column.isSetSuper_column());
             if (column.isSetSuper_column()) {
                 SuperColumn scol = column.getSuper_column();
-                SColumn s = new SColumn(k, new String(scol.getName(), UTF8), new TreeMap<String, Cell>());
+                SColumn s = new SColumn(key, codecs.getNameCodec().decode(scol.getName()), new TreeMap<String, Cell>());
                 for (Column col : scol.getColumns()) {
                     Cell c = new Cell(s,
-                                      new String(col.getName(), UTF8),
-                                      new String(col.getValue(), UTF8),
-                                      new Date(col.getTimestamp() / 1000));
+                                      codecs.getSubNameCodec().decode(col.getName()),
+                                      col.getValue(),
+                                      col.getTimestamp(),
+                                      codecs.getValueCodec(col.getName()));
                     s.getCells().put(c.getName(), c);
                 }
 
-                k.getSColumns().put(s.getName(), s);
+                key.getSColumns().put(s.getName(), s);
             } else {
                 Column col = column.getColumn();
-                Cell c = new Cell(k,
-                                  new String(col.getName(), UTF8),
-                                  new String(col.getValue(), UTF8),
-                                  new Date(col.getTimestamp() / 1000));
-                k.getCells().put(c.getName(), c);
+                Cell c = new Cell(key,
+                                  codecs.getNameCodec().decode(col.getName()),
+                                  col.getValue(),
+                                  col.getTimestamp(),
+                                  codecs.getValueCodec(col.getName()));
+                key.getCells().put(c.getName(), c);
             }
+        }
 
-            m.put(k.getName(), k);
+        if (!columns.isEmpty()) {
+            key.setLastColumnName(columnName(columns.get(columns.size() - 1)));
         }
 
-        return m;
+        return key;
     }
 
-    public Map<String, Key> listKeyAndValues(String keyspace, String columnFamily, String startKey, String endKey, int rows)
-            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
-        this.keyspace = keyspace;
-        this.columnFamily = columnFamily;
+    /**
+     * Send a request about key to one of its replicas, trying the
+     * other nodes of the ring when a replica can not be reached.
+     * Requests only fail over on transport errors, the operation
+     * must be safe to send twice.
+     */
+    private <T> T executeOnReplica(String keyspace, ByteBuffer key, Operation<T> op)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        return execute(getHosts(getTokenMap(keyspace).getHosts(key, host)), keyspace, op);
+    }
 
-        Map<String, Key> m = new TreeMap<String, Key>();
+    /**
+     * Send a request to the first of hosts which can be reached.
+     */
+    private <T> T execute(List<String> hosts, String keyspace, Operation<T> op)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        TTransportException failure = null;
+        for (String h : hosts) {
+            ConnectionPool.Connection conn = null;
+            try {
+                conn = pool.borrow(h, keyspace);
+                return op.execute(conn.getClient());
+            } catch (ConnectionPool.PoolExhaustedException e) {
+                // the host is busy, not down
+                failure = e;
+            } catch (TTransportException e) {
+                pool.markDown(h);
+                failure = e;
+            } finally {
+                if (conn != null) {
+                    pool.release(conn);
+                }
+            }
+        }
 
-        ColumnParent columnParent = new ColumnParent(columnFamily);
+        throw failure;
+    }
 
-        KeyRange keyRange = new KeyRange(rows);
-        keyRange.setStart_key(ByteBuffer.wrap(startKey.getBytes()));
-        keyRange.setEnd_key(ByteBuffer.wrap(endKey.getBytes()));
+    /**
+     * @return hosts followed by the connected host, the ones which
+     *         are not marked down first
+     */
+    private List<String> getHosts(List<String> hosts) {
+        Set<String> s = new LinkedHashSet<String>(hosts);
+        s.add(host);
+
+        List<String> up = new ArrayList<String>(s.size());
+        List<String> down = new ArrayList<String>();
+        for (String h : s) {
+            if (pool.isDown(h)) {
+                down.add(h);
+            } else {
+                up.add(h);
+            }
+        }
+        up.addAll(down);
 
-        SliceRange sliceRange = new SliceRange();
-        sliceRange.setStart(new byte[0]);
-        sliceRange.setFinish(new byte[0]);
+        return up;
+    }
 
-        SlicePredicate slicePredicate = new SlicePredicate();
-        slicePredicate.setSlice_range(sliceRange);
-        client.set_keyspace(keyspace);
+    /**
+     * @return the token map of keyspace, read again from describe_ring
+     *         when it is older than TOKEN_MAP_TTL, empty if the ring is unknown
+     *         in which case it is read again after EMPTY_TOKEN_MAP_TTL
+     */
+    private TokenMap getTokenMap(String keyspace) {
+        TokenMap tokenMap = tokenMaps.get(keyspace);
+        if (tokenMap != null) {
+            long ttl = tokenMap.isEmpty() ? EMPTY_TOKEN_MAP_TTL : TOKEN_MAP_TTL;
+            if (System.currentTimeMillis() - tokenMap.getCreated() < ttl) {
+                return tokenMap;
+            }
+        }
 
-        List<KeySlice> keySlices = null;
         try {
-            keySlices = client.get_range_slices(columnParent, slicePredicate, keyRange, ConsistencyLevel.ONE);
-        } catch (UnavailableException e) {
-            return m;
+            List<TokenRange> ranges = null;
+            ConnectionPool.Connection conn = borrow();
+            try {
+                ranges = conn.getClient().describe_ring(keyspace);
+            } finally {
+                pool.release(conn);
+            }
+            tokenMap = new TokenMap(getPartitioner(), ranges);
+        } catch (Exception e) {
+            // e.g. the system keyspace, which has no ring; send everything to host
+            tokenMap = TokenMap.empty();
         }
+        tokenMaps.put(keyspace, tokenMap);
 
-        for (KeySlice keySlice : keySlices) {
-            Key key = new Key(new String(keySlice.getKey()), new TreeMap<String, SColumn>(), new TreeMap<String, Cell>());
-
-            for (ColumnOrSuperColumn column : keySlice.getColumns()) {
-                key.setSuperColumn(column.isSetSuper_column());
-                if (column.isSetSuper_column()) {
-                    SuperColumn scol = column.getSuper_column();
-                    SColumn s = new SColumn(key, new String(scol.getName(), UTF8), new TreeMap<String, Cell>());
-                    for (Column col : scol.getColumns()) {
-                        Cell c = new Cell(s,
-                                          new String(col.getName(), UTF8),
-                                          new String(col.getValue(), UTF8),
-                                          new Date(col.getTimestamp() / 1000));
-                        s.getCells().put(c.getName(), c);
-                    }
-
-                    key.getSColumns().put(s.getName(), s);
-                } else {
-                    Column col = column.getColumn();
-                    Cell c = new Cell(key,
-                                      new String(col.getName(), UTF8),
-                                      new String(col.getValue(), UTF8),
-                                      new Date(col.getTimestamp() / 1000));
-                    key.getCells().put(c.getName(), c);
-                }
-            }
+        return tokenMap;
+    }
 
-            m.put(key.getName(), key);
+    @SuppressWarnings("rawtypes")
+    synchronized IPartitioner getPartitioner() throws ConfigurationException, TException {
+        if (partitioner == null) {
+            partitioner = FBUtilities.newPartitioner(describePartitioner());
         }
 
-        return m;
+        return partitioner;
+    }
+
+    /**
+     * Borrow a connection to the host this client is connected to.
+     * It has to be released to the pool when the call is done.
+     */
+    private ConnectionPool.Connection borrow() throws TException {
+        return pool.borrow(host);
+    }
+
+    private ConnectionPool.Connection borrow(String keyspace) throws InvalidRequestException, TException {
+        return pool.borrow(host, keyspace);
     }
 
     private boolean isEmpty(String s) {
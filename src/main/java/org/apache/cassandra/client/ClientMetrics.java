@@ -0,0 +1,172 @@
+package org.apache.cassandra.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per operation statistics of the calls a {@link Client} makes to the
+ * cluster: every Thrift call, blocking or async, and every JMX query.
+ * Thrift operations are named after their method, JMX ones start with
+ * "jmx:". The statistics can be published as an MBean of the JVM
+ * running the client.
+ */
+public class ClientMetrics implements ClientMetricsMBean {
+    public static final String DOMAIN = "org.apache.cassandra.gui";
+
+    private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<String, OperationStats>();
+    private ObjectName objectName;
+
+    /**
+     * @return the statistics of operation, created on first use
+     */
+    public OperationStats get(String operation) {
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            stats = new OperationStats(operation);
+            OperationStats old = operations.putIfAbsent(operation, stats);
+            if (old != null) {
+                stats = old;
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Record a call of operation which started at start, from System.nanoTime().
+     */
+    public void record(String operation, long start, long sent, long received, boolean failed) {
+        get(operation).record(System.nanoTime() - start, sent, received, failed);
+    }
+
+    /**
+     * @return the statistics of every operation called so far, by name
+     */
+    public List<OperationStats> getAll() {
+        List<OperationStats> l = new ArrayList<OperationStats>(operations.values());
+        Collections.sort(l, new Comparator<OperationStats>() {
+            @Override
+            public int compare(OperationStats o1, OperationStats o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+
+        return l;
+    }
+
+    /**
+     * Register as the MBean DOMAIN:type=ClientMetrics,name=name
+     * of the platform MBean server.
+     */
+    public synchronized void register(String name) throws JMException {
+        if (objectName != null) {
+            return;
+        }
+
+        ObjectName on = new ObjectName(DOMAIN + ":type=ClientMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        objectName = on;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (objectName == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String[] getOperations() {
+        List<OperationStats> l = getAll();
+        String[] names = new String[l.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = l.get(i).getName();
+        }
+
+        return names;
+    }
+
+    @Override
+    public String[] getSummary() {
+        List<OperationStats> l = getAll();
+        String[] lines = new String[l.size()];
+        for (int i = 0; i < lines.length; i++) {
+            OperationStats s = l.get(i);
+            LatencyHistogram h = s.getLatency();
+            lines[i] = String.format("%s count=%d errors=%d sent=%d received=%d mean=%d p50=%d p95=%d p99=%d max=%d",
+                                     s.getName(), s.getCount(), s.getErrors(), s.getBytesSent(), s.getBytesReceived(),
+                                     h.getMean(), h.getPercentile(50), h.getPercentile(95), h.getPercentile(99),
+                                     h.getMax());
+        }
+
+        return lines;
+    }
+
+    @Override
+    public long getCount(String operation) {
+        return find(operation).getCount();
+    }
+
+    @Override
+    public long getErrors(String operation) {
+        return find(operation).getErrors();
+    }
+
+    @Override
+    public long getBytesSent(String operation) {
+        return find(operation).getBytesSent();
+    }
+
+    @Override
+    public long getBytesReceived(String operation) {
+        return find(operation).getBytesReceived();
+    }
+
+    @Override
+    public long getMeanLatency(String operation) {
+        return find(operation).getLatency().getMean();
+    }
+
+    @Override
+    public long getMaxLatency(String operation) {
+        return find(operation).getLatency().getMax();
+    }
+
+    @Override
+    public long getLatencyPercentile(String operation, double percentile) {
+        return find(operation).getLatency().getPercentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        for (OperationStats s : operations.values()) {
+            s.reset();
+        }
+    }
+
+    /**
+     * Like {@link #get(String)}, without adding an operation
+     * which was never called because a JMX client asked for it.
+     */
+    private OperationStats find(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats == null ? new OperationStats(operation) : stats;
+    }
+}
@@ -0,0 +1,40 @@
+package org.apache.cassandra.client;
+
+/**
+ * The calls of a {@link Client} as seen from JMX, for jconsole or
+ * any other JMX client attached to the GUI.
+ * Latencies are in microseconds.
+ */
+public interface ClientMetricsMBean {
+    /**
+     * @return the names of the operations called so far
+     */
+    public String[] getOperations();
+
+    /**
+     * @return one line per operation with its count, errors, bytes and latencies
+     */
+    public String[] getSummary();
+
+    public long getCount(String operation);
+
+    public long getErrors(String operation);
+
+    public long getBytesSent(String operation);
+
+    public long getBytesReceived(String operation);
+
+    public long getMeanLatency(String operation);
+
+    public long getMaxLatency(String operation);
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public long getLatencyPercentile(String operation, double percentile);
+
+    /**
+     * Forget every call recorded so far.
+     */
+    public void reset();
+}
@@ -0,0 +1,403 @@
+package org.apache.cassandra.client;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cassandra.unit.Codec;
+
+/**
+ * Codecs for the marshal types of Cassandra, looked up by the class names
+ * found in comparator_type or validation_class, e.g. LongType or
+ * org.apache.cassandra.db.marshal.CompositeType(UTF8Type,LongType).
+ * Types without a codec of their own are shown as UTF-8 text.
+ */
+public class CodecRegistry {
+    private static final String MARSHAL_PACKAGE = "org.apache.cassandra.db.marshal.";
+    private static final String REVERSED_TYPE = "ReversedType";
+    private static final String COMPOSITE_TYPE = "CompositeType";
+    private static final char COMPONENT_SEPARATOR = ':';
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static final Codec UTF8 = new TextCodec("UTF8Type", "UTF-8");
+    public static final Codec ASCII = new TextCodec("AsciiType", "US-ASCII");
+    public static final Codec BYTES = new BytesCodec();
+
+    private static final Map<String, Codec> codecs = new ConcurrentHashMap<String, Codec>();
+
+    static {
+        register(UTF8);
+        register(ASCII);
+        register(BYTES);
+        register(new LongCodec("LongType"));
+        register(new LongCodec("CounterColumnType"));
+        register(new Int32Codec());
+        register(new IntegerCodec());
+        register(new UUIDCodec("UUIDType"));
+        register(new UUIDCodec("TimeUUIDType"));
+        register(new UUIDCodec("LexicalUUIDType"));
+    }
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * Make codec the one used for the type it names.
+     */
+    public static void register(Codec codec) {
+        codecs.put(codec.getType(), codec);
+    }
+
+    /**
+     * @return the codec of type, UTF8 if type is null or unknown
+     */
+    public static Codec forType(String type) {
+        if (type == null) {
+            return UTF8;
+        }
+
+        Codec codec = codecs.get(type);
+        if (codec != null) {
+            return codec;
+        }
+
+        String name = type.trim();
+        if (name.startsWith(MARSHAL_PACKAGE)) {
+            name = name.substring(MARSHAL_PACKAGE.length());
+        }
+
+        int i = name.indexOf('(');
+        if (i < 0) {
+            codec = codecs.get(name);
+        } else if (name.endsWith(")")) {
+            List<String> params = splitParameters(name.substring(i + 1, name.length() - 1));
+            String outer = name.substring(0, i);
+            if (outer.equals(REVERSED_TYPE) && params.size() == 1) {
+                codec = forType(params.get(0));
+            } else if (outer.equals(COMPOSITE_TYPE)) {
+                List<Codec> components = new ArrayList<Codec>();
+                for (String param : params) {
+                    components.add(forType(param));
+                }
+                codec = new CompositeCodec(type, components);
+            }
+        }
+
+        if (codec == null) {
+            codec = UTF8;
+        }
+        // parsed types are few, cache them under their full name
+        codecs.put(type, codec);
+
+        return codec;
+    }
+
+    private static List<String> splitParameters(String s) {
+        List<String> l = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                l.add(s.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        l.add(s.substring(start).trim());
+
+        return l;
+    }
+
+    static String toHex(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i] & 0xff;
+            chars[i * 2] = HEX[b >> 4];
+            chars[i * 2 + 1] = HEX[b & 0x0f];
+        }
+
+        return new String(chars);
+    }
+
+    private static long toLong(byte[] bytes, int offset, int length) {
+        long l = 0;
+        for (int i = 0; i < length; i++) {
+            l = (l << 8) | (bytes[offset + i] & 0xff);
+        }
+
+        return l;
+    }
+
+    private static byte[] fromLong(long l, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) l;
+            l >>>= 8;
+        }
+
+        return bytes;
+    }
+
+    private static class TextCodec implements Codec {
+        private final String type;
+        private final String charset;
+
+        private TextCodec(String type, String charset) {
+            this.type = type;
+            this.charset = charset;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            try {
+                return new String(bytes, charset);
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            try {
+                return s.getBytes(charset);
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static class BytesCodec implements Codec {
+        @Override
+        public String getType() {
+            return "BytesType";
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return toHex(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            if (s.length() % 2 != 0) {
+                throw new IllegalArgumentException("odd number of hex digits: " + s);
+            }
+
+            byte[] bytes = new byte[s.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                int hi = Character.digit(s.charAt(i * 2), 16);
+                int lo = Character.digit(s.charAt(i * 2 + 1), 16);
+                if (hi < 0 || lo < 0) {
+                    throw new IllegalArgumentException("not a hex string: " + s);
+                }
+                bytes[i] = (byte) ((hi << 4) | lo);
+            }
+
+            return bytes;
+        }
+    }
+
+    private static class LongCodec implements Codec {
+        private final String type;
+
+        private LongCodec(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            if (bytes.length != 8) {
+                return toHex(bytes, 0, bytes.length);
+            }
+
+            return Long.toString(toLong(bytes, 0, 8));
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            return fromLong(Long.parseLong(s.trim()), 8);
+        }
+    }
+
+    private static class Int32Codec implements Codec {
+        @Override
+        public String getType() {
+            return "Int32Type";
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            if (bytes.length != 4) {
+                return toHex(bytes, 0, bytes.length);
+            }
+
+            return Integer.toString((int) toLong(bytes, 0, 4));
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            return fromLong(Integer.parseInt(s.trim()), 4);
+        }
+    }
+
+    /**
+     * IntegerType, a variable length two's complement integer.
+     */
+    private static class IntegerCodec implements Codec {
+        @Override
+        public String getType() {
+            return "IntegerType";
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            if (bytes.length == 0) {
+                return "";
+            } else if (bytes.length <= 8) {
+                // sign extend without a BigInteger
+                long l = bytes[0] < 0 ? -1 : 0;
+                for (byte b : bytes) {
+                    l = (l << 8) | (b & 0xff);
+                }
+                return Long.toString(l);
+            }
+
+            return new BigInteger(bytes).toString();
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            return new BigInteger(s.trim()).toByteArray();
+        }
+    }
+
+    private static class UUIDCodec implements Codec {
+        private final String type;
+
+        private UUIDCodec(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            if (bytes.length != 16) {
+                return toHex(bytes, 0, bytes.length);
+            }
+
+            return new UUID(toLong(bytes, 0, 8), toLong(bytes, 8, 8)).toString();
+        }
+
+        @Override
+        public byte[] encode(String s) {
+            UUID uuid = UUID.fromString(s.trim());
+            byte[] bytes = new byte[16];
+            System.arraycopy(fromLong(uuid.getMostSignificantBits(), 8), 0, bytes, 0, 8);
+            System.arraycopy(fromLong(uuid.getLeastSignificantBits(), 8), 0, bytes, 8, 8);
+
+            return bytes;
+        }
+    }
+
+    /**
+     * CompositeType, shown as its components separated by colons.
+     * Each component is stored as a two byte length, the component
+     * and an end-of-component byte.
+     */
+    private static class CompositeCodec implements Codec {
+        private final String type;
+        private final List<Codec> components;
+
+        private CompositeCodec(String type, List<Codec> components) {
+            this.type = type;
+            this.components = components;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            StringBuilder sb = new StringBuilder();
+            int offset = 0;
+            for (int i = 0; offset < bytes.length; i++) {
+                if (offset + 2 > bytes.length) {
+                    return toHex(bytes, 0, bytes.length);
+                }
+                int length = (int) toLong(bytes, offset, 2);
+                offset += 2;
+                if (offset + length + 1 > bytes.length) {
+                    return toHex(bytes, 0, bytes.length);
+                }
+
+                byte[] component = new byte[length];
+                System.arraycopy(bytes, offset, component, 0, length);
+                offset += length + 1;
+
+                if (i > 0) {
+                    sb.append(COMPONENT_SEPARATOR);
+                }
+                sb.append(i < components.size() ? components.get(i).decode(component) : BYTES.decode(component));
+            }
+
+            return sb.toString();
+        }
+
+        /**
+         * The last component takes the rest of s, colons included.
+         */
+        @Override
+        public byte[] encode(String s) {
+            List<byte[]> l = new ArrayList<byte[]>();
+            int size = 0;
+            int start = 0;
+            for (int i = 0; i < components.size(); i++) {
+                int end = i == components.size() - 1 ? -1 : s.indexOf(COMPONENT_SEPARATOR, start);
+                String component = end < 0 ? s.substring(start) : s.substring(start, end);
+                byte[] bytes = components.get(i).encode(component);
+                l.add(bytes);
+                size += bytes.length + 3;
+                if (end < 0) {
+                    break;
+                }
+                start = end + 1;
+            }
+
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (byte[] component : l) {
+                bytes[offset++] = (byte) (component.length >> 8);
+                bytes[offset++] = (byte) component.length;
+                System.arraycopy(component, 0, bytes, offset, component.length);
+                offset += component.length;
+                bytes[offset++] = 0;
+            }
+
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.apache.cassandra.client;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.ColumnDef;
+import org.apache.cassandra.unit.Codec;
+
+/**
+ * The codecs of the names and values of a column family,
+ * as its comparators and validators declare them.
+ */
+public class ColumnFamilyCodecs {
+    /**
+     * UTF-8 for everything, for column families without a definition.
+     */
+    public static final ColumnFamilyCodecs DEFAULT = new ColumnFamilyCodecs(null);
+
+    private Codec nameCodec = CodecRegistry.UTF8;
+    private Codec subNameCodec = CodecRegistry.UTF8;
+    private Codec defaultValueCodec = CodecRegistry.UTF8;
+    private Map<ByteBuffer, Codec> valueCodecs = new HashMap<ByteBuffer, Codec>();
+
+    public ColumnFamilyCodecs(CfDef cfDef) {
+        if (cfDef == null) {
+            return;
+        }
+
+        nameCodec = CodecRegistry.forType(cfDef.getComparator_type());
+        subNameCodec = CodecRegistry.forType(cfDef.getSubcomparator_type());
+        defaultValueCodec = CodecRegistry.forType(cfDef.getDefault_validation_class());
+        if (cfDef.getColumn_metadata() != null) {
+            for (ColumnDef cd : cfDef.getColumn_metadata()) {
+                valueCodecs.put(cd.bufferForName(), CodecRegistry.forType(cd.getValidation_class()));
+            }
+        }
+    }
+
+    /**
+     * @return the codec of the column names, or of the super column names
+     */
+    public Codec getNameCodec() {
+        return nameCodec;
+    }
+
+    /**
+     * @return the codec of the column names within super columns
+     */
+    public Codec getSubNameCodec() {
+        return subNameCodec;
+    }
+
+    /**
+     * @return the codec of the values of the columns without metadata
+     */
+    public Codec getDefaultValueCodec() {
+        return defaultValueCodec;
+    }
+
+    /**
+     * @return the codec of the values of the column with the raw name
+     */
+    public Codec getValueCodec(byte[] name) {
+        if (valueCodecs.isEmpty()) {
+            return defaultValueCodec;
+        }
+
+        Codec codec = valueCodecs.get(ByteBuffer.wrap(name));
+        return codec == null ? defaultValueCodec : codec;
+    }
+}
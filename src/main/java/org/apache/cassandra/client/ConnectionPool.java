@@ -0,0 +1,475 @@
+package org.apache.cassandra.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * Pool of Thrift connections, kept per host.
+ *
+ * A connection is used by one thread at a time, between borrow and
+ * release, and remembers the keyspace it was last set to so that
+ * set_keyspace is only sent when a caller needs another keyspace.
+ * Connections which failed on the transport level are closed on release,
+ * connections idle for a while are checked before they are handed out
+ * again and closed after idleTimeout by a background evictor.
+ * Given {@link ClientMetrics}, every call made on a connection is
+ * recorded with its latency and the bytes it sent and received.
+ */
+public class ConnectionPool {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final long DEFAULT_MAX_WAIT = 10000;
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+    public static final long DEFAULT_VALIDATE_AFTER = 5000;
+    public static final long DEFAULT_DOWN_TIME = 30000;
+
+    /**
+     * Thrown by borrow when every connection to a host stays borrowed
+     * for maxWait, or the wait is interrupted. The host itself did not
+     * fail, so it is not to be marked down for it.
+     */
+    static class PoolExhaustedException extends TTransportException {
+        private static final long serialVersionUID = 3302617563437805114L;
+
+        private PoolExhaustedException(int type, String message) {
+            super(type, message);
+        }
+    }
+
+    /**
+     * A pooled connection to one host.
+     */
+    static class Connection {
+        private final String host;
+        private final PooledTransport transport;
+        private final Cassandra.Iface client;
+        private String keyspace;
+        private long lastUsed;
+
+        private Connection(String host, int port, ClientMetrics metrics) {
+            this.host = host;
+            this.transport = new PooledTransport(new TFramedTransport(new TSocket(host, port)));
+            Cassandra.Client c = new Cassandra.Client(new TBinaryProtocol(transport));
+            this.client = metrics == null ? c : (Cassandra.Iface) Proxy.newProxyInstance(
+                    Cassandra.Iface.class.getClassLoader(),
+                    new Class<?>[] {Cassandra.Iface.class},
+                    new MeteredCalls(c, transport, metrics));
+        }
+
+        /**
+         * @return the host
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * @return the client
+         */
+        public Cassandra.Iface getClient() {
+            return client;
+        }
+
+        private boolean isBroken() {
+            return transport.isBroken() || !transport.isOpen();
+        }
+
+        private void close() {
+            transport.close();
+        }
+    }
+
+    /**
+     * Records each call made on the client of a connection.
+     * The byte counts of the transport are only touched by the
+     * thread which borrowed the connection.
+     */
+    private static class MeteredCalls implements InvocationHandler {
+        private final Cassandra.Client client;
+        private final PooledTransport transport;
+        private final ClientMetrics metrics;
+
+        private MeteredCalls(Cassandra.Client client, PooledTransport transport, ClientMetrics metrics) {
+            this.client = client;
+            this.transport = transport;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(client, args);
+            }
+
+            long written = transport.bytesWritten;
+            long read = transport.bytesRead;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = method.invoke(client, args);
+                failed = false;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                metrics.record(method.getName(), start, transport.bytesWritten - written,
+                               transport.bytesRead - read, failed);
+            }
+        }
+    }
+
+    /**
+     * Transport which remembers that a read or write failed,
+     * the connection can not be reused after that.
+     * It also counts the bytes of the messages read and written.
+     */
+    private static class PooledTransport extends TTransport {
+        private final TTransport transport;
+        private volatile boolean broken;
+        private long bytesRead;
+        private long bytesWritten;
+
+        private PooledTransport(TTransport transport) {
+            this.transport = transport;
+        }
+
+        public boolean isBroken() {
+            return broken;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return transport.isOpen();
+        }
+
+        @Override
+        public void open() throws TTransportException {
+            transport.open();
+        }
+
+        @Override
+        public void close() {
+            transport.close();
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws TTransportException {
+            try {
+                int n = transport.read(buf, off, len);
+                bytesRead += n;
+                return n;
+            } catch (TTransportException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws TTransportException {
+            try {
+                transport.write(buf, off, len);
+                bytesWritten += len;
+            } catch (TTransportException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws TTransportException {
+            try {
+                transport.flush();
+            } catch (TTransportException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public byte[] getBuffer() {
+            return transport.getBuffer();
+        }
+
+        @Override
+        public int getBufferPosition() {
+            return transport.getBufferPosition();
+        }
+
+        @Override
+        public int getBytesRemainingInBuffer() {
+            return transport.getBytesRemainingInBuffer();
+        }
+
+        @Override
+        public void consumeBuffer(int len) {
+            // the protocol reads from the frame buffer directly when it can
+            transport.consumeBuffer(len);
+            bytesRead += len;
+        }
+    }
+
+    /**
+     * Idle connections of one host, most recently used first.
+     */
+    private class HostPool {
+        private final String host;
+        private final Semaphore permits = new Semaphore(maxConnectionsPerHost, true);
+        private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<Connection>();
+
+        private HostPool(String host) {
+            this.host = host;
+        }
+
+        private Connection borrow(String keyspace) throws InvalidRequestException, TException {
+            try {
+                if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                    throw new PoolExhaustedException(TTransportException.TIMED_OUT,
+                                                     "no connection to " + host + " available after " + maxWait + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PoolExhaustedException(TTransportException.UNKNOWN,
+                                                 "interrupted while waiting for a connection to " + host);
+            }
+
+            Connection conn = null;
+            boolean done = false;
+            try {
+                while (conn == null) {
+                    conn = idle.pollFirst();
+                    if (conn == null) {
+                        conn = new Connection(host, port, metrics);
+                        conn.transport.open();
+                    } else if (!isValid(conn)) {
+                        conn.close();
+                        conn = null;
+                    }
+                }
+
+                if (keyspace != null && !keyspace.equals(conn.keyspace)) {
+                    try {
+                        conn.client.set_keyspace(keyspace);
+                    } catch (InvalidRequestException e) {
+                        // the keyspace is wrong, not the connection
+                        done = true;
+                        release(conn);
+                        throw e;
+                    }
+                    conn.keyspace = keyspace;
+                }
+
+                done = true;
+                return conn;
+            } finally {
+                // whatever failed, the connection is closed and its permit given back
+                if (!done) {
+                    if (conn != null) {
+                        conn.close();
+                    }
+                    permits.release();
+                }
+            }
+        }
+
+        private boolean isValid(Connection conn) {
+            if (conn.isBroken()) {
+                return false;
+            } else if (System.currentTimeMillis() - conn.lastUsed < validateAfter) {
+                return true;
+            }
+
+            try {
+                conn.client.describe_version();
+                return true;
+            } catch (TException e) {
+                return false;
+            }
+        }
+
+        private void release(Connection conn) {
+            if (conn.isBroken() || closed) {
+                conn.close();
+            } else {
+                conn.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(conn);
+            }
+            permits.release();
+        }
+
+        private void evict(long now) {
+            // the oldest connections are at the end of the deque
+            for (Iterator<Connection> it = idle.descendingIterator(); it.hasNext();) {
+                Connection conn = it.next();
+                if (now - conn.lastUsed < idleTimeout) {
+                    break;
+                }
+                if (idle.removeLastOccurrence(conn)) {
+                    conn.close();
+                }
+            }
+        }
+
+        private void close() {
+            Connection conn;
+            while ((conn = idle.pollFirst()) != null) {
+                conn.close();
+            }
+        }
+    }
+
+    private final int port;
+    private final int maxConnectionsPerHost;
+    private final long maxWait;
+    private final long idleTimeout;
+    private final long validateAfter;
+    private final ClientMetrics metrics;
+
+    private final Map<String, HostPool> pools = new ConcurrentHashMap<String, HostPool>();
+    private final Map<String, Long> downMap = new ConcurrentHashMap<String, Long>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public ConnectionPool(int port) {
+        this(port, null);
+    }
+
+    public ConnectionPool(int port, ClientMetrics metrics) {
+        this(port, DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_WAIT, DEFAULT_IDLE_TIMEOUT, DEFAULT_VALIDATE_AFTER,
+             metrics);
+    }
+
+    /**
+     * @param port Thrift port of every host
+     * @param maxConnectionsPerHost connections open to a host at most, idle or borrowed
+     * @param maxWait milliseconds to wait for a connection when all of them are borrowed
+     * @param idleTimeout milliseconds after which an idle connection is closed
+     * @param validateAfter milliseconds after which an idle connection is checked before it is reused
+     * @param metrics where the calls are recorded, null to record none
+     */
+    public ConnectionPool(int port,
+                          int maxConnectionsPerHost,
+                          long maxWait,
+                          long idleTimeout,
+                          long validateAfter,
+                          ClientMetrics metrics) {
+        this.port = port;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxWait = maxWait;
+        this.idleTimeout = idleTimeout;
+        this.validateAfter = validateAfter;
+        this.metrics = metrics;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ConnectionPoolEvictor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        // a delay of 0 is refused, idle timeouts below 2 ms are checked every millisecond
+        long evictDelay = Math.max(1, idleTimeout / 2);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                for (HostPool pool : pools.values()) {
+                    pool.evict(now);
+                }
+            }
+        }, evictDelay, evictDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection to host which is not bound to a keyspace.
+     */
+    Connection borrow(String host) throws TException {
+        try {
+            return borrow(host, null);
+        } catch (InvalidRequestException e) {
+            // set_keyspace is not called without a keyspace
+            throw new TException(e);
+        }
+    }
+
+    /**
+     * Borrow a connection to host with keyspace set on it.
+     * Every borrowed connection must be given back with {@link #release(Connection)}.
+     */
+    Connection borrow(String host, String keyspace) throws InvalidRequestException, TException {
+        if (closed) {
+            throw new TTransportException(TTransportException.NOT_OPEN, "connection pool is closed");
+        }
+
+        return getHostPool(host).borrow(keyspace);
+    }
+
+    void release(Connection conn) {
+        getHostPool(conn.host).release(conn);
+    }
+
+    /**
+     * Remember that a request to host failed on the transport level.
+     * The host is still used, but only after the hosts which did not fail.
+     */
+    public void markDown(String host) {
+        downMap.put(host, System.currentTimeMillis() + DEFAULT_DOWN_TIME);
+    }
+
+    public boolean isDown(String host) {
+        Long until = downMap.get(host);
+        if (until == null) {
+            return false;
+        } else if (until < System.currentTimeMillis()) {
+            downMap.remove(host);
+            return false;
+        }
+
+        return true;
+    }
+
+    private synchronized HostPool getHostPool(String host) {
+        HostPool pool = pools.get(host);
+        if (pool == null) {
+            pool = new HostPool(host);
+            pools.put(host, pool);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Close the idle connections and stop the evictor, borrowed
+     * connections are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        for (HostPool pool : pools.values()) {
+            pool.close();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,10 @@
+package org.apache.cassandra.client;
+
+/**
+ * Receives the progress of a {@link RowCounter}.
+ * When rows are counted, countCallback is called from the scanning
+ * thread as each range of the ring is finished.
+ */
+public interface CountCallback {
+    public void countCallback(long count);
+}
@@ -0,0 +1,342 @@
+package org.apache.cassandra.client;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.unit.Cell;
+import org.apache.cassandra.unit.Key;
+import org.apache.cassandra.unit.SColumn;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.thrift.TException;
+
+/**
+ * Writes every column of a column family, or of a range of its keys,
+ * to a file or a stream, one line per column,
+ * as CSV (key,super_column,column,value,timestamp) or as JSON Lines.
+ * Rows are read one page at a time and wide rows one slice at a time,
+ * so only a page of rows is held in memory whatever the size of the
+ * column family. Timestamps are written in microseconds.
+ */
+public class Exporter {
+    public enum Format {
+        CSV("csv"),
+        JSON("json");
+
+        private String extension;
+
+        private Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return the format matching the extension of file, CSV if there is none
+         */
+        public static Format forFile(File file) {
+            return file.getName().toLowerCase().endsWith("." + JSON.extension) ? JSON : CSV;
+        }
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final String CSV_HEADER = "key,super_column,column,value,timestamp";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Counts the bytes written to the file.
+     */
+    private static class CountingChannel implements WritableByteChannel {
+        private final WritableByteChannel channel;
+        private volatile long bytes;
+
+        private CountingChannel(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int n = channel.write(src);
+            bytes += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private Client client;
+    private String keyspace;
+    private String columnFamily;
+    private Format format;
+    private int columnCount;
+    private KeyRangePager pager;
+
+    private CountingChannel channel;
+    private Writer writer;
+    private volatile long rows;
+    private volatile long columns;
+    private long startTime;
+
+    public Exporter(Client client, String keyspace, String columnFamily, Format format) {
+        this(client, keyspace, columnFamily, format, DEFAULT_PAGE_SIZE, Client.DEFAULT_COLUMN_COUNT);
+    }
+
+    public Exporter(Client client,
+                    String keyspace,
+                    String columnFamily,
+                    Format format,
+                    int pageSize,
+                    int columnCount) {
+        this(client, keyspace, columnFamily, format, "", "", pageSize, columnCount);
+    }
+
+    /**
+     * Export the rows from startKey to endKey only, an empty key
+     * standing for the start or the end of the ring.
+     */
+    public Exporter(Client client,
+                    String keyspace,
+                    String columnFamily,
+                    Format format,
+                    String startKey,
+                    String endKey,
+                    int pageSize,
+                    int columnCount) {
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.format = format;
+        this.columnCount = columnCount;
+        this.pager = new KeyRangePager(client,
+                                       keyspace,
+                                       columnFamily,
+                                       ByteBuffer.wrap(startKey.getBytes()),
+                                       ByteBuffer.wrap(endKey.getBytes()),
+                                       pageSize,
+                                       columnCount);
+    }
+
+    /**
+     * Export the whole column family to file.
+     *
+     * @return the number of rows written
+     */
+    public long export(File file)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, IOException {
+        open(file);
+        try {
+            while (exportPage()) {
+            }
+        } finally {
+            close();
+        }
+
+        return rows;
+    }
+
+    public void open(File file) throws IOException {
+        open(new FileOutputStream(file).getChannel());
+    }
+
+    /**
+     * Write to out instead of a file, out is closed by {@link #close()}.
+     */
+    public void open(OutputStream out) throws IOException {
+        open(Channels.newChannel(out));
+    }
+
+    private void open(WritableByteChannel out) throws IOException {
+        channel = new CountingChannel(out);
+        writer = new BufferedWriter(Channels.newWriter(channel, "UTF-8"), BUFFER_SIZE);
+        startTime = System.currentTimeMillis();
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Write the next page of rows.
+     *
+     * @return false when there are no more rows
+     */
+    public boolean exportPage()
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, IOException {
+        if (!pager.hasNext()) {
+            return false;
+        }
+
+        for (Key k : pager.next().values()) {
+            if (k.getCells().isEmpty() && k.getSColumns().isEmpty()) {
+                // deleted row
+                continue;
+            }
+            export(k);
+        }
+
+        return pager.hasNext();
+    }
+
+    /**
+     * Write the row of key.
+     *
+     * @return false when the key has no columns
+     */
+    public boolean exportKey(String key)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, IOException {
+        Key k = client.getKeySlice(keyspace, columnFamily, null, key, new byte[0], columnCount);
+        if (k == null) {
+            return false;
+        }
+        export(k);
+
+        return true;
+    }
+
+    /**
+     * Write k, then the slices of k left out by its column count.
+     */
+    private void export(Key k)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, IOException {
+        write(k);
+
+        Key slice = k;
+        while (slice.isTruncated()) {
+            slice = client.getKeySlice(keyspace,
+                                       columnFamily,
+                                       null,
+                                       k.getName(),
+                                       slice.getLastColumnName(),
+                                       columnCount);
+            if (slice == null) {
+                break;
+            }
+            write(slice);
+        }
+
+        rows++;
+    }
+
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void write(Key k) throws IOException {
+        for (SColumn s : k.getSColumns().values()) {
+            for (Cell c : s.getCells().values()) {
+                write(k.getName(), s.getName(), c);
+            }
+        }
+        for (Cell c : k.getCells().values()) {
+            write(k.getName(), null, c);
+        }
+    }
+
+    private void write(String key, String superColumn, Cell c) throws IOException {
+        long timestamp = c.getTimestamp();
+
+        if (format == Format.CSV) {
+            writer.write(csv(key));
+            writer.write(',');
+            if (superColumn != null) {
+                writer.write(csv(superColumn));
+            }
+            writer.write(',');
+            writer.write(csv(c.getName()));
+            writer.write(',');
+            writer.write(csv(c.getValue()));
+            writer.write(',');
+            writer.write(String.valueOf(timestamp));
+        } else {
+            writer.write("{\"key\":\"");
+            writer.write(StringEscapeUtils.escapeJava(key));
+            if (superColumn != null) {
+                writer.write("\",\"super_column\":\"");
+                writer.write(StringEscapeUtils.escapeJava(superColumn));
+            }
+            writer.write("\",\"column\":\"");
+            writer.write(StringEscapeUtils.escapeJava(c.getName()));
+            writer.write("\",\"value\":\"");
+            writer.write(StringEscapeUtils.escapeJava(c.getValue()));
+            writer.write("\",\"timestamp\":");
+            writer.write(String.valueOf(timestamp));
+            writer.write('}');
+        }
+        writer.write(LINE_SEPARATOR);
+        columns++;
+    }
+
+    /**
+     * Quote a CSV field if it contains a separator, a quote or a line break.
+     */
+    static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns written
+     */
+    public long getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of bytes written to the file
+     */
+    public long getBytes() {
+        return channel == null ? 0 : channel.bytes;
+    }
+
+    /**
+     * @return the milliseconds since the export started
+     */
+    public long getElapsed() {
+        return startTime == 0 ? 0 : System.currentTimeMillis() - startTime;
+    }
+
+    public long getRowsPerSecond() {
+        long elapsed = getElapsed();
+        return elapsed == 0 ? 0 : rows * 1000 / elapsed;
+    }
+
+    public long getBytesPerSecond() {
+        long elapsed = getElapsed();
+        return elapsed == 0 ? 0 : getBytes() * 1000 / elapsed;
+    }
+}
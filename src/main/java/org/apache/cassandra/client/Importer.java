@@ -0,0 +1,540 @@
+package org.apache.cassandra.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SuperColumn;
+import org.apache.thrift.TException;
+
+/**
+ * Loads a file written by {@link Exporter} into a column family.
+ * The file is read one line at a time; its columns are grouped by key
+ * and super column into batch_mutate calls of batchSize columns, and
+ * up to maxInFlight calls run at the same time, sent through the
+ * {@link AsyncClient} by the reading thread. Reading waits when that
+ * many calls are running, so a large file never piles up in memory.
+ * Lines which can not be parsed and the keys of failed batches are
+ * counted as failed rows, the import goes on with the rest of the file.
+ */
+public class Importer {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private static final String CSV_HEADER_KEY = "key";
+
+    private static class Record {
+        private String key;
+        private String superColumn;
+        private String column;
+        private String value;
+        private long timestamp;
+    }
+
+    private Client client;
+    private String keyspace;
+    private String columnFamily;
+    private Exporter.Format format;
+    private int batchSize;
+    private int maxInFlight;
+    private ColumnFamilyCodecs codecs;
+
+    private Map<ByteBuffer, Map<String, List<Mutation>>> batch;
+    private Map<ByteBuffer, Mutation> lastSuperColumns;
+    private int batchColumns;
+
+    private Semaphore inFlight;
+    private volatile boolean cancelled;
+
+    private AtomicLong rows = new AtomicLong();
+    private AtomicLong columns = new AtomicLong();
+    private AtomicLong failedRows = new AtomicLong();
+    private volatile Exception lastError;
+    private volatile long startTime;
+
+    public Importer(Client client, String keyspace, String columnFamily, Exporter.Format format) {
+        this(client, keyspace, columnFamily, format, DEFAULT_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param batchSize number of columns sent per batch_mutate call
+     * @param maxInFlight number of batch_mutate calls running at the same time
+     */
+    public Importer(Client client,
+                    String keyspace,
+                    String columnFamily,
+                    Exporter.Format format,
+                    int batchSize,
+                    int maxInFlight) {
+        if (batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("batch size and batches in flight must be positive");
+        }
+
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.format = format;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Import file, blocking until every batch has been applied
+     * or the import is cancelled.
+     *
+     * @return the number of rows imported
+     */
+    public long importFile(File file) throws IOException, InterruptedException {
+        startTime = System.currentTimeMillis();
+        try {
+            codecs = client.getCodecs(keyspace, columnFamily);
+        } catch (InvalidRequestException e) {
+            throw new IOException("can not describe " + columnFamily + ": " + e.getWhy(), e);
+        } catch (TException e) {
+            throw new IOException("can not describe " + columnFamily, e);
+        }
+        newBatch();
+        inFlight = new Semaphore(maxInFlight);
+
+        BufferedReader reader =
+            new BufferedReader(Channels.newReader(new FileInputStream(file).getChannel(), "UTF-8"));
+        try {
+            if (format == Exporter.Format.CSV) {
+                readCsv(reader);
+            } else {
+                readJson(reader);
+            }
+            flush();
+
+            // wait for the batches still running
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } finally {
+            reader.close();
+        }
+
+        return rows.get();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void readJson(BufferedReader reader) throws IOException, InterruptedException {
+        String line;
+        while (!cancelled && (line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            Record r = null;
+            try {
+                r = toRecord(parseJson(line));
+            } catch (IllegalArgumentException e) {
+                fail(1, e);
+                continue;
+            }
+            add(r);
+        }
+    }
+
+    private void readCsv(BufferedReader reader) throws IOException, InterruptedException {
+        List<String> fields = new ArrayList<String>();
+        boolean first = true;
+        while (!cancelled && readCsvLine(reader, fields)) {
+            if (first) {
+                first = false;
+                if (!fields.isEmpty() && fields.get(0).equals(CSV_HEADER_KEY)) {
+                    continue;
+                }
+            }
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+
+            if (fields.size() < 4 || fields.size() > 5) {
+                fail(1, new IllegalArgumentException("expected 4 or 5 fields: " + fields));
+                continue;
+            }
+
+            Map<String, String> m = new HashMap<String, String>();
+            m.put("key", fields.get(0));
+            m.put("super_column", fields.get(1));
+            m.put("column", fields.get(2));
+            m.put("value", fields.get(3));
+            if (fields.size() == 5) {
+                m.put("timestamp", fields.get(4));
+            }
+
+            Record r = null;
+            try {
+                r = toRecord(m);
+            } catch (IllegalArgumentException e) {
+                fail(1, e);
+                continue;
+            }
+            add(r);
+        }
+    }
+
+    private Record toRecord(Map<String, String> m) {
+        Record r = new Record();
+        r.key = m.get("key");
+        r.superColumn = m.get("super_column");
+        r.column = m.get("column");
+        r.value = m.get("value");
+        if (r.key == null || r.column == null || r.value == null) {
+            throw new IllegalArgumentException("key, column and value are required: " + m);
+        }
+        if (r.superColumn != null && r.superColumn.isEmpty()) {
+            r.superColumn = null;
+        }
+
+        String timestamp = m.get("timestamp");
+        try {
+            r.timestamp = timestamp == null || timestamp.isEmpty() ?
+                              System.currentTimeMillis() * 1000 :
+                              Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad timestamp: " + timestamp);
+        }
+
+        return r;
+    }
+
+    private void add(Record r) throws InterruptedException {
+        Column col = new Column();
+        byte[] name = null;
+        try {
+            if (r.superColumn == null) {
+                col.setName(codecs.getNameCodec().encode(r.column));
+            } else {
+                name = codecs.getNameCodec().encode(r.superColumn);
+                col.setName(codecs.getSubNameCodec().encode(r.column));
+            }
+            col.setValue(codecs.getValueCodec(col.getName()).encode(r.value));
+        } catch (IllegalArgumentException e) {
+            fail(1, e);
+            return;
+        }
+        col.setTimestamp(r.timestamp);
+
+        ByteBuffer key = ByteBuffer.wrap(r.key.getBytes());
+
+        Map<String, List<Mutation>> cfMap = batch.get(key);
+        if (cfMap == null) {
+            cfMap = new HashMap<String, List<Mutation>>();
+            cfMap.put(columnFamily, new ArrayList<Mutation>());
+            batch.put(key, cfMap);
+        }
+        List<Mutation> l = cfMap.get(columnFamily);
+
+        if (r.superColumn == null) {
+            ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+            cosc.setColumn(col);
+            Mutation mutation = new Mutation();
+            mutation.setColumn_or_supercolumn(cosc);
+            l.add(mutation);
+        } else {
+            // columns of a super column follow each other in an exported file
+            Mutation mutation = lastSuperColumns.get(key);
+            if (mutation == null ||
+                !ByteBuffer.wrap(name).equals(mutation.getColumn_or_supercolumn().getSuper_column().bufferForName())) {
+                SuperColumn sc = new SuperColumn();
+                sc.setName(name);
+                sc.setColumns(new ArrayList<Column>());
+                ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                cosc.setSuper_column(sc);
+                mutation = new Mutation();
+                mutation.setColumn_or_supercolumn(cosc);
+                l.add(mutation);
+                lastSuperColumns.put(key, mutation);
+            }
+            mutation.getColumn_or_supercolumn().getSuper_column().addToColumns(col);
+        }
+
+        batchColumns++;
+        if (batchColumns >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the current batch, waiting while maxInFlight batches are running.
+     */
+    private void flush() throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final Map<ByteBuffer, Map<String, List<Mutation>>> mutations = batch;
+        final int r = batch.size();
+        final int c = batchColumns;
+        newBatch();
+
+        inFlight.acquire();
+        if (cancelled) {
+            inFlight.release();
+            return;
+        }
+
+        final AsyncResult<Void> result;
+        try {
+            result = client.batchMutateAsync(keyspace, mutations);
+        } catch (IOException e) {
+            fail(r, e);
+            inFlight.release();
+            return;
+        }
+
+        // runs on the selector thread of the async client
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Client.await(result);
+                    rows.addAndGet(r);
+                    columns.addAndGet(c);
+                } catch (Exception e) {
+                    fail(r, e);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        });
+    }
+
+    private void newBatch() {
+        batch = new LinkedHashMap<ByteBuffer, Map<String, List<Mutation>>>();
+        lastSuperColumns = new HashMap<ByteBuffer, Mutation>();
+        batchColumns = 0;
+    }
+
+    private void fail(int count, Exception e) {
+        failedRows.addAndGet(count);
+        lastError = e;
+    }
+
+    /**
+     * Read one CSV record, which may span several lines when a quoted
+     * field contains line breaks.
+     *
+     * @return false at the end of the file
+     */
+    static boolean readCsvLine(Reader reader, List<String> fields) throws IOException {
+        fields.clear();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+
+        int c;
+        while ((c = reader.read()) >= 0) {
+            read = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        sb.append('"');
+                    } else {
+                        quoted = false;
+                        if (next >= 0) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+
+        if (!read) {
+            return false;
+        }
+        fields.add(sb.toString());
+
+        return true;
+    }
+
+    /**
+     * Parse a JSON object whose values are strings, numbers or null.
+     */
+    static Map<String, String> parseJson(String line) {
+        Map<String, String> m = new HashMap<String, String>();
+        int[] pos = {skipSpaces(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            return m;
+        }
+
+        while (true) {
+            String name = parseString(line, pos);
+            expect(line, pos, ':');
+            String value = null;
+            if (peek(line, pos) == '"') {
+                value = parseString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            m.put(name, value);
+
+            char c = peek(line, pos);
+            pos[0]++;
+            if (c == '}') {
+                return m;
+            } else if (c != ',') {
+                throw new IllegalArgumentException("expected , or } at " + pos[0] + ": " + line);
+            }
+        }
+    }
+
+    private static String parseString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (pos[0] < line.length()) {
+            char c = line.charAt(pos[0]++);
+            if (c == '"') {
+                return sb.toString();
+            } else if (c != '\\') {
+                sb.append(c);
+                continue;
+            } else if (pos[0] >= line.length()) {
+                break;
+            }
+
+            c = line.charAt(pos[0]++);
+            switch (c) {
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u':
+                if (pos[0] + 4 > line.length()) {
+                    throw new IllegalArgumentException("bad escape at " + pos[0] + ": " + line);
+                }
+                try {
+                    sb.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("bad escape at " + pos[0] + ": " + line);
+                }
+                pos[0] += 4;
+                break;
+            default:
+                sb.append(c);
+                break;
+            }
+        }
+
+        throw new IllegalArgumentException("unterminated string: " + line);
+    }
+
+    private static char peek(String line, int[] pos) {
+        pos[0] = skipSpaces(line, pos[0]);
+        if (pos[0] >= line.length()) {
+            throw new IllegalArgumentException("unexpected end of line: " + line);
+        }
+
+        return line.charAt(pos[0]);
+    }
+
+    private static void expect(String line, int[] pos, char c) {
+        if (peek(line, pos) != c) {
+            throw new IllegalArgumentException("expected " + c + " at " + pos[0] + ": " + line);
+        }
+        pos[0]++;
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+
+        return pos;
+    }
+
+    /**
+     * @return the number of rows imported, a row split across batches counts once per batch
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return the number of columns imported
+     */
+    public long getColumns() {
+        return columns.get();
+    }
+
+    /**
+     * @return the number of rows which could not be parsed or imported
+     */
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+
+    /**
+     * @return the last error, null if every row was imported
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return the milliseconds since the import started
+     */
+    public long getElapsed() {
+        return startTime == 0 ? 0 : System.currentTimeMillis() - startTime;
+    }
+
+    public long getRowsPerSecond() {
+        long elapsed = getElapsed();
+        return elapsed == 0 ? 0 : rows.get() * 1000 / elapsed;
+    }
+}
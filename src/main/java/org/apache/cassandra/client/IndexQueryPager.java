@@ -0,0 +1,48 @@
+package org.apache.cassandra.client;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.cassandra.thrift.IndexExpression;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.thrift.TException;
+
+/**
+ * Walks the rows matching index expressions page by page with
+ * get_indexed_slices, so the lookup is answered by the secondary
+ * index of the nodes instead of a scan of the column family.
+ * At least one of the expressions has to be an EQ on an indexed column.
+ */
+public class IndexQueryPager extends KeyRangePager {
+    private List<IndexExpression> expressions;
+
+    IndexQueryPager(Client client,
+                    String keyspace,
+                    String columnFamily,
+                    List<IndexExpression> expressions,
+                    int pageSize,
+                    int columnCount) {
+        super(client, keyspace, columnFamily, ByteBuffer.wrap(new byte[0]), ByteBuffer.wrap(new byte[0]), pageSize, columnCount);
+        if (expressions.isEmpty()) {
+            throw new IllegalArgumentException("no index expression");
+        }
+
+        this.expressions = expressions;
+    }
+
+    @Override
+    protected List<KeySlice> fetch(ByteBuffer start, int rows)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        return client.getIndexedSlices(keyspace, columnFamily, expressions, start, rows, columnCount);
+    }
+
+    /**
+     * @return the expressions
+     */
+    public List<IndexExpression> getExpressions() {
+        return expressions;
+    }
+}
@@ -0,0 +1,153 @@
+package org.apache.cassandra.client;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.unit.Key;
+import org.apache.thrift.TException;
+
+/**
+ * Walks a key range page by page with get_range_slices.
+ * Every call fetches pageSize + 1 rows, the extra row being the
+ * start key of the following page, so a page never costs more than
+ * one round trip regardless of the size of the column family.
+ * Each row is limited to columnCount columns, the rest can be
+ * fetched with {@link Client#getKey(String, String, String, String, byte[], int)}.
+ * Subclasses page through other queries returning rows in key order
+ * by overriding fetch, see {@link IndexQueryPager}.
+ */
+public class KeyRangePager {
+    protected final Client client;
+    protected final String keyspace;
+    protected final String columnFamily;
+    private ByteBuffer endKey;
+    private int pageSize;
+    protected final int columnCount;
+
+    private LinkedList<ByteBuffer> previousStarts = new LinkedList<ByteBuffer>();
+    private ByteBuffer currentStart;
+    private ByteBuffer nextStart;
+    private int pageNumber;
+
+    KeyRangePager(Client client,
+                  String keyspace,
+                  String columnFamily,
+                  ByteBuffer startKey,
+                  ByteBuffer endKey,
+                  int pageSize,
+                  int columnCount) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page size must be positive: " + pageSize);
+        }
+
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.endKey = endKey;
+        this.pageSize = pageSize;
+        this.columnCount = columnCount;
+        this.nextStart = startKey;
+    }
+
+    public boolean hasNext() {
+        return nextStart != null;
+    }
+
+    public boolean hasPrevious() {
+        return !previousStarts.isEmpty();
+    }
+
+    /**
+     * Fetch the next page of rows, in ring order.
+     */
+    public Map<String, Key> next()
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        ByteBuffer previousStart = currentStart;
+        Map<String, Key> m = load(nextStart);
+        if (previousStart != null) {
+            previousStarts.addFirst(previousStart);
+        }
+        pageNumber++;
+
+        return m;
+    }
+
+    /**
+     * Fetch the page before the current one again.
+     */
+    public Map<String, Key> previous()
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        if (!hasPrevious()) {
+            throw new NoSuchElementException();
+        }
+
+        Map<String, Key> m = load(previousStarts.getFirst());
+        previousStarts.removeFirst();
+        pageNumber--;
+
+        return m;
+    }
+
+    private Map<String, Key> load(ByteBuffer start)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException, UnsupportedEncodingException {
+        List<KeySlice> keySlices = fetch(start.duplicate(), pageSize + 1);
+
+        currentStart = start;
+        nextStart = null;
+        if (keySlices.size() > pageSize) {
+            nextStart = keySlices.remove(pageSize).bufferForKey();
+        }
+
+        ColumnFamilyCodecs codecs = client.getCodecs(keyspace, columnFamily);
+        Map<String, Key> m = new LinkedHashMap<String, Key>();
+        for (KeySlice keySlice : keySlices) {
+            Key key = Client.toKey(new String(keySlice.getKey()), keySlice.getColumns(), codecs);
+            key.setTruncated(keySlice.getColumnsSize() >= columnCount);
+            m.put(key.getName(), key);
+        }
+
+        return m;
+    }
+
+    /**
+     * Fetch at most rows rows, starting with the row of key start.
+     */
+    protected List<KeySlice> fetch(ByteBuffer start, int rows)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        return client.getRangeSlices(keyspace, columnFamily, start, endKey.duplicate(), rows, columnCount);
+    }
+
+    /**
+     * @return the number of the page last fetched, starting at 1
+     */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * @return the pageSize
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the columnCount
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+}
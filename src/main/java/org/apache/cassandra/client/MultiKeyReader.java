@@ -0,0 +1,169 @@
+package org.apache.cassandra.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.unit.Key;
+import org.apache.thrift.TException;
+
+/**
+ * Reads a list of keys with multiget_slice calls of batchSize keys.
+ * Keys are grouped by the node holding their first replica, so a call
+ * is answered by that node instead of being spread over the ring by a
+ * coordinator, and up to maxInFlight calls run at the same time through
+ * the {@link AsyncClient}.
+ * The rows of a call are decoded and handed to the callback by the
+ * reading thread as soon as the call returns, in no particular order.
+ */
+public class MultiKeyReader {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private static class Batch {
+        private List<String> names = new ArrayList<String>();
+        private List<ByteBuffer> keys = new ArrayList<ByteBuffer>();
+        private AsyncResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> result;
+    }
+
+    private Client client;
+    private String keyspace;
+    private String columnFamily;
+    private int batchSize;
+    private int columnCount;
+    private int maxInFlight;
+
+    private volatile boolean cancelled;
+    private List<String> missingKeys = new ArrayList<String>();
+
+    MultiKeyReader(Client client,
+                   String keyspace,
+                   String columnFamily,
+                   int batchSize,
+                   int columnCount,
+                   int maxInFlight) {
+        if (batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("batch size and batches in flight must be positive");
+        }
+
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.batchSize = batchSize;
+        this.columnCount = columnCount;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Read keys, blocking until all of them are read, the read is
+     * cancelled or a batch fails.
+     *
+     * @param callback receives the rows found, and the number of batches finished
+     * @return the number of rows found
+     */
+    public long read(Collection<String> keys, ScanCallback callback)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException,
+                   IOException, InterruptedException {
+        missingKeys.clear();
+        List<Batch> batches = getBatches(keys);
+        ColumnFamilyCodecs codecs = client.getCodecs(keyspace, columnFamily);
+
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final BlockingQueue<Batch> done = new LinkedBlockingQueue<Batch>();
+        int sent = 0;
+        int finished = 0;
+        long rows = 0;
+        try {
+            while (finished < batches.size() && !cancelled) {
+                // send as many batches as allowed, then handle the first one back
+                while (sent < batches.size() && inFlight.tryAcquire()) {
+                    final Batch batch = batches.get(sent++);
+                    batch.result = client.multigetSliceAsync(keyspace, columnFamily, batch.keys, columnCount);
+                    batch.result.addListener(new Runnable() {
+                        @Override
+                        public void run() {
+                            done.add(batch);
+                        }
+                    });
+                }
+
+                Batch batch = done.take();
+                inFlight.release();
+                Map<ByteBuffer, List<ColumnOrSuperColumn>> m = Client.await(batch.result);
+                for (int i = 0; i < batch.keys.size(); i++) {
+                    List<ColumnOrSuperColumn> columns = m.get(batch.keys.get(i));
+                    String name = batch.names.get(i);
+                    if (columns == null || columns.isEmpty()) {
+                        missingKeys.add(name);
+                        continue;
+                    }
+
+                    Key key = Client.toKey(name, columns, codecs);
+                    key.setTruncated(columns.size() >= columnCount);
+                    callback.keyCallback(key);
+                    rows++;
+                }
+                callback.rangeCallback(++finished, batches.size());
+            }
+        } finally {
+            for (Batch batch : batches) {
+                if (batch.result != null) {
+                    batch.result.cancel(false);
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the keys of the last read which have no columns
+     */
+    public List<String> getMissingKeys() {
+        return missingKeys;
+    }
+
+    /**
+     * @return the distinct keys, in batches of keys sharing their first replica
+     */
+    private List<Batch> getBatches(Collection<String> keys) {
+        List<Batch> batches = new ArrayList<Batch>();
+        Map<String, Batch> open = new LinkedHashMap<String, Batch>();
+        for (String key : new LinkedHashSet<String>(keys)) {
+            ByteBuffer k = ByteBuffer.wrap(key.getBytes());
+            List<String> replicas = client.getReplicas(keyspace, k);
+            String replica = replicas.isEmpty() ? "" : replicas.get(0);
+
+            Batch batch = open.get(replica);
+            if (batch == null || batch.keys.size() >= batchSize) {
+                batch = new Batch();
+                batches.add(batch);
+                open.put(replica, batch);
+            }
+            batch.names.add(key);
+            batch.keys.add(k);
+        }
+
+        return batches;
+    }
+}
@@ -0,0 +1,236 @@
+package org.apache.cassandra.client;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.tools.NodeProbe;
+
+/**
+ * Keeps one JMX connection open per node.
+ * A connection is opened the first time a node is queried, shared by
+ * every later query and closed once it has not been used for idleTimeout.
+ * A query failing on an open connection is retried once on a new one,
+ * so a restarted node does not leave a dead connection behind.
+ * Given {@link ClientMetrics}, each attempt of a query is recorded
+ * under "jmx:" and the name of the query, opening a connection
+ * under "jmx:connect".
+ */
+public class NodeProbeCache {
+    public static final long DEFAULT_IDLE_TIMEOUT = 300000;
+
+    /**
+     * A query run on the JMX connection of a node.
+     */
+    static abstract class Operation<T> {
+        private final String name;
+
+        protected Operation(String name) {
+            this.name = name;
+        }
+
+        public abstract T execute(NodeProbe probe) throws IOException, InterruptedException;
+    }
+
+    private static class Entry {
+        private NodeProbe probe;
+        private int users;
+        private long lastUsed = System.currentTimeMillis();
+        private boolean removed;
+    }
+
+    private final int jmxPort;
+    private final long idleTimeout;
+    private final ClientMetrics metrics;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public NodeProbeCache(int jmxPort) {
+        this(jmxPort, null);
+    }
+
+    public NodeProbeCache(int jmxPort, ClientMetrics metrics) {
+        this(jmxPort, DEFAULT_IDLE_TIMEOUT, metrics);
+    }
+
+    /**
+     * @param metrics where the queries are recorded, null to record none
+     */
+    public NodeProbeCache(int jmxPort, long idleTimeout, ClientMetrics metrics) {
+        this.jmxPort = jmxPort;
+        this.idleTimeout = idleTimeout;
+        this.metrics = metrics;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "NodeProbeEvictor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        // a delay of 0 is refused, idle timeouts below 2 ms are checked every millisecond
+        long evictDelay = Math.max(1, idleTimeout / 2);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, evictDelay, evictDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open the connection to endpoint if it is not open yet.
+     */
+    public void open(String endpoint) throws IOException, InterruptedException {
+        release(endpoint, acquire(endpoint), false);
+    }
+
+    /**
+     * Run op on the connection to endpoint, opening it if needed.
+     */
+    <T> T execute(String endpoint, Operation<T> op) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            Entry e = acquire(endpoint);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                T result = op.execute(e.probe);
+                failed = false;
+                return result;
+            } catch (IOException ex) {
+                if (attempt > 0) {
+                    throw ex;
+                }
+            } catch (RuntimeException ex) {
+                // JMX proxies report a broken connection as an unchecked exception
+                if (attempt > 0) {
+                    throw ex;
+                }
+            } finally {
+                release(endpoint, e, failed);
+                if (metrics != null) {
+                    metrics.record("jmx:" + op.name, start, 0, 0, failed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Close every connection.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        for (String endpoint : entries.keySet()) {
+            Entry e = entries.remove(endpoint);
+            if (e != null) {
+                synchronized (e) {
+                    e.removed = true;
+                    // a probe still in use is closed when its last user releases it
+                    if (e.users == 0) {
+                        closeProbe(e);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private Entry acquire(String endpoint) throws IOException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new IOException("node probe cache is closed");
+            }
+
+            Entry e = entries.get(endpoint);
+            if (e == null) {
+                e = new Entry();
+                Entry old = entries.putIfAbsent(endpoint, e);
+                if (old != null) {
+                    e = old;
+                }
+            }
+
+            // opening a connection takes a while, only block queries to the same node
+            synchronized (e) {
+                if (e.removed) {
+                    continue;
+                }
+                if (e.probe == null) {
+                    e.probe = connect(endpoint);
+                }
+                e.users++;
+                e.lastUsed = System.currentTimeMillis();
+                return e;
+            }
+        }
+    }
+
+    private NodeProbe connect(String endpoint) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            NodeProbe probe = new NodeProbe(endpoint, jmxPort);
+            failed = false;
+            return probe;
+        } finally {
+            if (metrics != null) {
+                metrics.record("jmx:connect", start, 0, 0, failed);
+            }
+        }
+    }
+
+    private void release(String endpoint, Entry e, boolean failed) {
+        synchronized (e) {
+            e.users--;
+            e.lastUsed = System.currentTimeMillis();
+            if (failed && !e.removed) {
+                // later queries open a new connection, the queries still
+                // running on this one finish before it is closed
+                e.removed = true;
+                entries.remove(endpoint, e);
+            }
+            if (e.removed && e.users == 0) {
+                closeProbe(e);
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Entry e = it.next().getValue();
+            synchronized (e) {
+                if (e.users == 0 && now - e.lastUsed >= idleTimeout) {
+                    e.removed = true;
+                    it.remove();
+                    closeProbe(e);
+                }
+            }
+        }
+    }
+
+    private static void closeProbe(Entry e) {
+        if (e.probe == null) {
+            return;
+        }
+
+        try {
+            e.probe.close();
+        } catch (IOException ex) {
+            // the node is gone already
+        }
+        e.probe = null;
+    }
+}
@@ -0,0 +1,117 @@
+package org.apache.cassandra.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.node.NodeStats;
+import org.apache.cassandra.node.Tpstats;
+
+/**
+ * Reads the statistics of many nodes at once.
+ * Up to MAX_THREADS nodes are queried at the same time and the whole
+ * collection is given timeout milliseconds, so collecting from a ring
+ * takes as long as its slowest node, or the timeout, whichever is shorter.
+ */
+public class NodeStatsCollector {
+    public static final long DEFAULT_TIMEOUT = 10000;
+
+    private static final int MAX_THREADS = 64;
+
+    private Client client;
+    private long timeout;
+
+    public NodeStatsCollector(Client client) {
+        this(client, DEFAULT_TIMEOUT);
+    }
+
+    public NodeStatsCollector(Client client, long timeout) {
+        this.client = client;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the statistics of each endpoint, with an error for the
+     *         nodes which failed or did not answer in time
+     */
+    public Map<String, NodeStats> collect(List<String> endpoints) throws InterruptedException {
+        Map<String, NodeStats> m = new HashMap<String, NodeStats>();
+        if (endpoints.isEmpty()) {
+            return m;
+        }
+
+        List<Callable<NodeStats>> tasks = new ArrayList<Callable<NodeStats>>();
+        for (final String endpoint : endpoints) {
+            tasks.add(new Callable<NodeStats>() {
+                @Override
+                public NodeStats call() throws Exception {
+                    return collect(endpoint);
+                }
+            });
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(Math.min(endpoints.size(), MAX_THREADS), new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "NodeStatsCollector-" + ++count);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        try {
+            List<Future<NodeStats>> futures = executor.invokeAll(tasks, timeout, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < endpoints.size(); i++) {
+                NodeStats stats = null;
+                try {
+                    stats = futures.get(i).get();
+                } catch (CancellationException e) {
+                    stats = failed(endpoints.get(i), "timed out");
+                } catch (ExecutionException e) {
+                    stats = failed(endpoints.get(i), String.valueOf(e.getCause().getMessage()));
+                }
+                m.put(endpoints.get(i), stats);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return m;
+    }
+
+    private NodeStats collect(String endpoint) throws Exception {
+        NodeStats stats = new NodeStats();
+        stats.setEndpoint(endpoint);
+        stats.setNodeInfo(client.getNodeInfo(endpoint));
+
+        int active = 0;
+        long pending = 0;
+        for (Tpstats t : client.getTpstats(endpoint)) {
+            active += t.getActiveCount();
+            pending += t.getPendingTasks();
+        }
+        stats.setActiveTasks(active);
+        stats.setPendingTasks(pending);
+
+        return stats;
+    }
+
+    private static NodeStats failed(String endpoint, String error) {
+        NodeStats stats = new NodeStats();
+        stats.setEndpoint(endpoint);
+        stats.setError(error);
+
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.cassandra.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies, errors and bytes of one kind of call a {@link Client} makes,
+ * a Thrift method or a JMX query.
+ */
+public class OperationStats {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param nanos time the call took
+     * @param sent bytes sent, 0 when not known
+     * @param received bytes received, 0 when not known
+     * @param failed whether the call threw
+     */
+    public void record(long nanos, long sent, long received, boolean failed) {
+        latency.record(nanos / 1000);
+        if (failed) {
+            errors.incrementAndGet();
+        }
+        bytesSent.addAndGet(sent);
+        bytesReceived.addAndGet(received);
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the latency histogram, in microseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the number of calls
+     */
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return the number of calls which threw
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return the bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return the bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+        bytesSent.set(0);
+        bytesReceived.set(0);
+    }
+}
@@ -0,0 +1,267 @@
+package org.apache.cassandra.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.ConfigurationException;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.TokenRange;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.unit.Key;
+import org.apache.thrift.TException;
+
+/**
+ * Reads every row of a column family.
+ * The ranges of the ring are split with describe_splits and the sub
+ * ranges are paged through by a fixed number of threads, each query
+ * going to a replica of its range, so a scan uses every node instead
+ * of one coordinator.
+ * Pages follow each other by token: the next page starts after the
+ * token of the last row of the previous one, and it is requested
+ * through the {@link AsyncClient} while the previous one is read.
+ */
+public class RangeScanner {
+    public static final int DEFAULT_KEYS_PER_SPLIT = 65536;
+
+    private static final long POLL_INTERVAL = 200;
+
+    private static class Split {
+        private String startToken;
+        private String endToken;
+        private List<String> endpoints;
+
+        private Split(String startToken, String endToken, List<String> endpoints) {
+            this.startToken = startToken;
+            this.endToken = endToken;
+            this.endpoints = endpoints;
+        }
+    }
+
+    private Client client;
+    private String keyspace;
+    private String columnFamily;
+    private int pageSize;
+    private int columnCount;
+    private int threads;
+    private int keysPerSplit = DEFAULT_KEYS_PER_SPLIT;
+
+    private volatile boolean cancelled;
+    private volatile ExecutorService executor;
+
+    RangeScanner(Client client,
+                 String keyspace,
+                 String columnFamily,
+                 int pageSize,
+                 int columnCount,
+                 int threads) {
+        if (pageSize < 2) {
+            throw new IllegalArgumentException("page size must be at least 2: " + pageSize);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("thread count must be positive: " + threads);
+        }
+
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.pageSize = pageSize;
+        this.columnCount = columnCount;
+        this.threads = threads;
+    }
+
+    /**
+     * Read every row of the column family, blocking until all ranges
+     * are read, the scan is cancelled or a range fails.
+     *
+     * @param callback receives the rows and the progress of the scan
+     * @return the number of rows read
+     */
+    public long scan(final ScanCallback callback)
+            throws InvalidRequestException, TException, ConfigurationException, InterruptedException, ExecutionException {
+        List<Split> splits = getSplits();
+
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "RangeScanner-" + ++count);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (cancelled) {
+            executor.shutdownNow();
+        }
+
+        try {
+            CompletionService<Long> cs = new ExecutorCompletionService<Long>(executor);
+            for (final Split split : splits) {
+                cs.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return scan(split, callback);
+                    }
+                });
+            }
+
+            long rows = 0;
+            int finished = 0;
+            while (finished < splits.size() && !cancelled) {
+                // poll, as the ranges dropped by cancel never complete
+                Future<Long> f = cs.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (f == null) {
+                    continue;
+                }
+
+                try {
+                    rows += f.get();
+                } catch (ExecutionException e) {
+                    if (cancelled) {
+                        break;
+                    }
+                    throw e;
+                }
+                finished++;
+                callback.rangeCallback(finished, splits.size());
+            }
+
+            return rows;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop the scan, rows being delivered may still reach the callback.
+     */
+    public void cancel() {
+        cancelled = true;
+        ExecutorService e = executor;
+        if (e != null) {
+            e.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private List<Split> getSplits()
+            throws InvalidRequestException, TException {
+        List<Split> splits = new ArrayList<Split>();
+        for (TokenRange range : client.describeRing(keyspace)) {
+            List<String> endpoints = TokenMap.getEndpoints(range);
+
+            List<String> tokens = null;
+            try {
+                tokens = client.describeSplits(keyspace,
+                                               columnFamily,
+                                               range.getStart_token(),
+                                               range.getEnd_token(),
+                                               endpoints,
+                                               keysPerSplit);
+            } catch (Exception e) {
+                // read the range as a whole
+            }
+            if (tokens == null || tokens.size() < 2) {
+                tokens = new ArrayList<String>();
+                tokens.add(range.getStart_token());
+                tokens.add(range.getEnd_token());
+            }
+
+            for (int i = 0; i < tokens.size() - 1; i++) {
+                splits.add(new Split(tokens.get(i), tokens.get(i + 1), endpoints));
+            }
+        }
+
+        return splits;
+    }
+
+    /**
+     * Page through a split, asking for the next page before the rows
+     * of the current one are handed to the callback, so the request
+     * runs while the callback works.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private long scan(Split split, ScanCallback callback)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException,
+                   IOException, ConfigurationException, InterruptedException {
+        IPartitioner partitioner = client.getPartitioner();
+        Token.TokenFactory tf = partitioner.getTokenFactory();
+        ColumnFamilyCodecs codecs = client.getCodecs(keyspace, columnFamily);
+
+        long rows = 0;
+        AsyncResult<List<KeySlice>> page = fetch(split, split.startToken);
+        while (page != null && !cancelled) {
+            List<KeySlice> keySlices = Client.await(page);
+
+            page = null;
+            if (keySlices.size() >= pageSize) {
+                KeySlice last = keySlices.get(keySlices.size() - 1);
+                String startToken = tf.toString(partitioner.getToken(last.bufferForKey()));
+                if (!startToken.equals(split.endToken)) {
+                    page = fetch(split, startToken);
+                }
+            }
+
+            for (KeySlice keySlice : keySlices) {
+                if (cancelled) {
+                    break;
+                } else if (keySlice.getColumnsSize() == 0) {
+                    // deleted row
+                    continue;
+                }
+
+                Key key = Client.toKey(new String(keySlice.getKey()), keySlice.getColumns(), codecs);
+                key.setTruncated(keySlice.getColumnsSize() >= columnCount);
+                callback.keyCallback(key);
+                rows++;
+            }
+        }
+
+        if (page != null) {
+            page.cancel(false);
+        }
+
+        return rows;
+    }
+
+    private AsyncResult<List<KeySlice>> fetch(Split split, String startToken) throws IOException {
+        return client.getRangeSlicesAsync(keyspace,
+                                          columnFamily,
+                                          startToken,
+                                          split.endToken,
+                                          split.endpoints,
+                                          pageSize,
+                                          columnCount);
+    }
+
+    /**
+     * @return the keysPerSplit
+     */
+    public int getKeysPerSplit() {
+        return keysPerSplit;
+    }
+
+    /**
+     * @param keysPerSplit the keysPerSplit to set
+     */
+    public void setKeysPerSplit(int keysPerSplit) {
+        this.keysPerSplit = keysPerSplit;
+    }
+}
@@ -0,0 +1,139 @@
+package org.apache.cassandra.client;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cassandra.config.ConfigurationException;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.unit.Key;
+import org.apache.thrift.TException;
+
+/**
+ * Counts the columns of a row or the rows of a column family on the client.
+ * get_count counts a whole row in one call, which times out on huge rows;
+ * here columns are read by get_slice calls of batchSize columns, and rows
+ * by a {@link RangeScanner} fetching a single column per row, so no call
+ * asks a node for more than batchSize columns or rows.
+ * Rows without live columns are not counted.
+ */
+public class RowCounter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_THREADS = 4;
+
+    private Client client;
+    private String keyspace;
+    private String columnFamily;
+    private int batchSize;
+    private int threads = DEFAULT_THREADS;
+
+    private volatile boolean cancelled;
+    private volatile RangeScanner scanner;
+
+    RowCounter(Client client, String keyspace, String columnFamily, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+
+        this.client = client;
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Count the columns of key, or the sub columns of superColumn
+     * when it is not null, blocking until they are counted or the
+     * count is cancelled.
+     *
+     * @param callback receives the columns counted so far after each call, may be null
+     * @return the number of columns counted
+     */
+    public long countColumns(String key, String superColumn, CountCallback callback)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException {
+        byte[] superName = null;
+        if (superColumn != null) {
+            superName = client.getCodecs(keyspace, columnFamily).getNameCodec().encode(superColumn);
+        }
+
+        ByteBuffer rowKey = ByteBuffer.wrap(key.getBytes());
+        byte[] start = new byte[0];
+        long count = 0;
+        while (!cancelled) {
+            List<ColumnOrSuperColumn> l =
+                client.getSlice(keyspace, columnFamily, superName, rowKey, start, batchSize);
+            count += l.size();
+            if (callback != null) {
+                callback.countCallback(count);
+            }
+
+            if (l.size() < batchSize) {
+                break;
+            }
+            start = Client.columnName(l.get(l.size() - 1));
+        }
+
+        return count;
+    }
+
+    /**
+     * Count the rows of the column family, reading the ranges of the ring
+     * in parallel, blocking until they are counted, the count is cancelled
+     * or a range fails.
+     *
+     * @param callback receives the rows counted so far as each range is finished, may be null
+     * @return the number of rows counted
+     */
+    public long countRows(final CountCallback callback)
+            throws InvalidRequestException, TException, ConfigurationException, InterruptedException, ExecutionException {
+        final AtomicLong rows = new AtomicLong();
+        scanner = client.getRangeScanner(keyspace, columnFamily, batchSize, 1, threads);
+        if (cancelled) {
+            scanner.cancel();
+        }
+
+        return scanner.scan(new ScanCallback() {
+            @Override
+            public void keyCallback(Key key) {
+                rows.incrementAndGet();
+            }
+
+            @Override
+            public void rangeCallback(int finishedRanges, int totalRanges) {
+                if (callback != null) {
+                    callback.countCallback(rows.get());
+                }
+            }
+        });
+    }
+
+    public void cancel() {
+        cancelled = true;
+        RangeScanner s = scanner;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of ranges counted at the same time
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads the number of ranges counted at the same time
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
@@ -0,0 +1,15 @@
+package org.apache.cassandra.client;
+
+import org.apache.cassandra.unit.Key;
+
+/**
+ * Receives the rows read by a {@link RangeScanner} or a {@link MultiKeyReader}.
+ * keyCallback is called from the scanner threads, concurrently
+ * for rows of different ranges and in no particular order.
+ * A MultiKeyReader calls it from its reading thread only, and
+ * counts its batches as ranges.
+ */
+public interface ScanCallback {
+    public void keyCallback(Key key);
+    public void rangeCallback(int finishedRanges, int totalRanges);
+}
@@ -0,0 +1,93 @@
+package org.apache.cassandra.client;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.KsDef;
+
+/**
+ * Keyspace definitions read from the cluster, with their column families
+ * indexed by name.
+ * The whole cache is dropped when the schema versions reported by the
+ * cluster change, so changes made by other clients are picked up too.
+ */
+class SchemaCache {
+    private static final String UNREACHABLE = "UNREACHABLE";
+
+    private static class Entry {
+        private final KsDef ksDef;
+        private final Map<String, CfDef> cfDefs = new HashMap<String, CfDef>();
+
+        private Entry(KsDef ksDef) {
+            this.ksDef = ksDef;
+            for (CfDef cfDef : ksDef.getCf_defs()) {
+                cfDefs.put(cfDef.getName().toLowerCase(), cfDef);
+            }
+        }
+    }
+
+    private final Map<String, Entry> keyspaces = new ConcurrentHashMap<String, Entry>();
+    private volatile String versions;
+    private volatile long checked;
+
+    /**
+     * @return the definition of keyspace, null if it is not cached
+     */
+    KsDef getKeyspace(String keyspace) {
+        Entry e = keyspaces.get(keyspace);
+        return e == null ? null : e.ksDef;
+    }
+
+    /**
+     * @return the definition of columnFamily, whose name is compared
+     *         ignoring case, null if its keyspace is not cached
+     */
+    CfDef getColumnFamily(String keyspace, String columnFamily) {
+        Entry e = keyspaces.get(keyspace);
+        return e == null ? null : e.cfDefs.get(columnFamily.toLowerCase());
+    }
+
+    boolean contains(String keyspace) {
+        return keyspaces.containsKey(keyspace);
+    }
+
+    void put(KsDef ksDef) {
+        keyspaces.put(ksDef.getName(), new Entry(ksDef));
+    }
+
+    void invalidate(String keyspace) {
+        keyspaces.remove(keyspace);
+    }
+
+    void invalidateAll() {
+        keyspaces.clear();
+    }
+
+    /**
+     * @return the time of the last call to {@link #checkVersions}
+     */
+    long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Compare the schema versions reported by the cluster with the ones
+     * the cache was filled under, and drop the cache if they differ.
+     * Unreachable nodes are ignored.
+     */
+    void checkVersions(Map<String, List<String>> schemaVersions) {
+        TreeSet<String> s = new TreeSet<String>(schemaVersions.keySet());
+        s.remove(UNREACHABLE);
+        String v = s.toString();
+
+        if (!v.equals(versions)) {
+            invalidateAll();
+            versions = v;
+        }
+        checked = System.currentTimeMillis();
+    }
+}
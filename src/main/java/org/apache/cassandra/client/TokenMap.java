@@ -0,0 +1,119 @@
+package org.apache.cassandra.client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.thrift.TokenRange;
+
+/**
+ * Maps keys of a keyspace to the nodes holding their replicas,
+ * from the ranges returned by describe_ring.
+ */
+public class TokenMap {
+    private static final String ANY_ADDRESS = "0.0.0.0";
+
+    @SuppressWarnings("rawtypes")
+    private final IPartitioner partitioner;
+
+    /**
+     * end token of each range to its replicas, ranges include their end token
+     */
+    @SuppressWarnings("rawtypes")
+    private final NavigableMap<Token, List<String>> replicaMap = new TreeMap<Token, List<String>>();
+    private final Set<String> hosts = new LinkedHashSet<String>();
+    private final long created = System.currentTimeMillis();
+
+    /**
+     * A map of no ring, see {@link #empty()}.
+     */
+    private TokenMap() {
+        this.partitioner = null;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public TokenMap(IPartitioner partitioner, List<TokenRange> ranges) {
+        this.partitioner = partitioner;
+
+        Token.TokenFactory tf = partitioner.getTokenFactory();
+        for (TokenRange range : ranges) {
+            List<String> endpoints = getEndpoints(range);
+            replicaMap.put(tf.fromString(range.getEnd_token()), new ArrayList<String>(endpoints));
+            hosts.addAll(endpoints);
+        }
+    }
+
+    /**
+     * @return a map which knows no replica, its hosts are only the fallback host
+     */
+    public static TokenMap empty() {
+        return new TokenMap();
+    }
+
+    /**
+     * @return the addresses clients should use to reach the replicas of range
+     */
+    static List<String> getEndpoints(TokenRange range) {
+        List<String> endpoints = range.getRpc_endpoints();
+        if (endpoints == null || endpoints.isEmpty() || endpoints.contains(ANY_ADDRESS)) {
+            // nodes listening on every interface do not report an rpc address
+            endpoints = range.getEndpoints();
+        }
+
+        return endpoints;
+    }
+
+    /**
+     * @return the replicas of key, in ring order
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List<String> getReplicas(ByteBuffer key) {
+        if (replicaMap.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Token token = partitioner.getToken(key.duplicate());
+        Map.Entry<Token, List<String>> e = replicaMap.ceilingEntry(token);
+        if (e == null) {
+            // past the last token, the range wraps around to the first one
+            e = replicaMap.firstEntry();
+        }
+
+        return e.getValue();
+    }
+
+    /**
+     * @param key
+     * @param fallback host tried after the replicas, usually the node the client connected to
+     * @return the replicas of key followed by fallback and the other nodes of the ring
+     */
+    public List<String> getHosts(ByteBuffer key, String fallback) {
+        Set<String> s = new LinkedHashSet<String>(getReplicas(key));
+        s.add(fallback);
+        s.addAll(hosts);
+
+        return new ArrayList<String>(s);
+    }
+
+    /**
+     * @return whether the map knows no replica
+     */
+    public boolean isEmpty() {
+        return replicaMap.isEmpty();
+    }
+
+    /**
+     * @return the time the map was built, in milliseconds
+     */
+    public long getCreated() {
+        return created;
+    }
+}
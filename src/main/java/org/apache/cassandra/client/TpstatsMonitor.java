@@ -0,0 +1,93 @@
+package org.apache.cassandra.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.node.TpstatsHistory;
+
+/**
+ * Polls the thread pool statistics of several nodes at a fixed interval
+ * into a {@link TpstatsHistory} per node.
+ * The queries go through the JMX connections cached by the client.
+ */
+public class TpstatsMonitor {
+    public static final long DEFAULT_INTERVAL = 2000;
+    public static final int DEFAULT_CAPACITY = 300;
+
+    private static final int MAX_THREADS = 4;
+
+    private Client client;
+    private List<TpstatsHistory> histories = new ArrayList<TpstatsHistory>();
+    private ScheduledExecutorService executor;
+
+    public TpstatsMonitor(Client client, List<String> endpoints) {
+        this(client, endpoints, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of samples kept per pool and metric
+     */
+    public TpstatsMonitor(Client client, List<String> endpoints, int capacity) {
+        this.client = client;
+        for (String endpoint : endpoints) {
+            histories.add(new TpstatsHistory(endpoint, capacity));
+        }
+    }
+
+    /**
+     * Start polling every interval milliseconds, restarting
+     * the polls if they are running already.
+     */
+    public synchronized void start(long interval) {
+        stop();
+
+        executor = Executors.newScheduledThreadPool(Math.min(histories.size(), MAX_THREADS), new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "TpstatsMonitor-" + ++count);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        for (final TpstatsHistory history : histories) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        history.add(System.currentTimeMillis(), client.getTpstats(history.getEndpoint()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        // keep polling, the node may come back
+                        history.setLastError(e);
+                    }
+                }
+            }, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * @return the histories, one per node
+     */
+    public List<TpstatsHistory> getHistories() {
+        return histories;
+    }
+}
@@ -0,0 +1,159 @@
+package org.apache.cassandra.fake;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.KsDef;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SuperColumn;
+
+/**
+ * Fills the column families of a {@link FakeCassandra} with rows of
+ * generated columns, creating the keyspace and the column family when
+ * they do not exist. Keys are key00000000, key00000001, ..., names
+ * column00000000, ... and super00000000, ...; names and values are
+ * UTF-8 and values are random letters, from a seeded generator so the
+ * same arguments give the same data.
+ */
+public class DataGenerator {
+    public static final String STRATEGY_CLASS = "org.apache.cassandra.locator.SimpleStrategy";
+    public static final int ROWS_PER_BATCH = 100;
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private FakeCassandra cassandra;
+    private Random random;
+
+    public DataGenerator(FakeCassandra cassandra, long seed) {
+        this.cassandra = cassandra;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Write rows rows of columns columns of valueSize bytes
+     * to the standard column family columnFamily.
+     */
+    public void generate(String keyspace, String columnFamily, int rows, int columns, int valueSize)
+            throws InvalidRequestException {
+        createColumnFamily(keyspace, columnFamily, false);
+        generate(keyspace, columnFamily, rows, 0, columns, valueSize);
+    }
+
+    /**
+     * Write rows rows of superColumns super columns of columns columns
+     * of valueSize bytes to the super column family columnFamily.
+     */
+    public void generateSuper(String keyspace,
+                              String columnFamily,
+                              int rows,
+                              int superColumns,
+                              int columns,
+                              int valueSize)
+            throws InvalidRequestException {
+        createColumnFamily(keyspace, columnFamily, true);
+        generate(keyspace, columnFamily, rows, superColumns, columns, valueSize);
+    }
+
+    private void generate(String keyspace,
+                          String columnFamily,
+                          int rows,
+                          int superColumns,
+                          int columns,
+                          int valueSize)
+            throws InvalidRequestException {
+        long timestamp = System.currentTimeMillis() * 1000;
+        Map<ByteBuffer, Map<String, List<Mutation>>> batch = new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
+        for (int i = 0; i < rows; i++) {
+            List<Mutation> mutations = new ArrayList<Mutation>();
+            if (superColumns > 0) {
+                for (int s = 0; s < superColumns; s++) {
+                    SuperColumn sc = new SuperColumn();
+                    sc.setName(bytes(String.format("super%08d", s)));
+                    sc.setColumns(newColumns(columns, valueSize, timestamp));
+                    ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                    cosc.setSuper_column(sc);
+                    mutations.add(new Mutation().setColumn_or_supercolumn(cosc));
+                }
+            } else {
+                for (Column c : newColumns(columns, valueSize, timestamp)) {
+                    ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                    cosc.setColumn(c);
+                    mutations.add(new Mutation().setColumn_or_supercolumn(cosc));
+                }
+            }
+
+            Map<String, List<Mutation>> m = new HashMap<String, List<Mutation>>();
+            m.put(columnFamily, mutations);
+            batch.put(ByteBuffer.wrap(bytes(String.format("key%08d", i))), m);
+            if (batch.size() >= ROWS_PER_BATCH) {
+                cassandra.mutate(keyspace, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            cassandra.mutate(keyspace, batch);
+        }
+    }
+
+    private List<Column> newColumns(int columns, int valueSize, long timestamp) {
+        List<Column> l = new ArrayList<Column>();
+        for (int i = 0; i < columns; i++) {
+            Column c = new Column(ByteBuffer.wrap(bytes(String.format("column%08d", i))));
+            c.setValue(newValue(valueSize));
+            c.setTimestamp(timestamp);
+            l.add(c);
+        }
+
+        return l;
+    }
+
+    private byte[] newValue(int size) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) {
+            b[i] = (byte) LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+
+        return b;
+    }
+
+    private void createColumnFamily(String keyspace, String columnFamily, boolean superColumn)
+            throws InvalidRequestException {
+        if (!cassandra.getKeyspaces().contains(keyspace)) {
+            KsDef ksDef = new KsDef(keyspace, STRATEGY_CLASS, new ArrayList<CfDef>());
+            Map<String, String> options = new HashMap<String, String>();
+            options.put("replication_factor", "1");
+            ksDef.setStrategy_options(options);
+            cassandra.system_add_keyspace(ksDef);
+        }
+        if (cassandra.getColumnFamilies(keyspace).contains(columnFamily)) {
+            return;
+        }
+
+        CfDef cfDef = new CfDef(keyspace, columnFamily);
+        cfDef.setColumn_type(superColumn ? "Super" : "Standard");
+        cfDef.setComparator_type("UTF8Type");
+        if (superColumn) {
+            cfDef.setSubcomparator_type("UTF8Type");
+        }
+        cfDef.setKey_validation_class("UTF8Type");
+        cfDef.setDefault_validation_class("UTF8Type");
+        cassandra.system_add_column_family(cfDef);
+    }
+
+    private static byte[] bytes(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,976 @@
+package org.apache.cassandra.fake;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.cassandra.config.ConfigurationException;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.TypeParser;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnDef;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ColumnParent;
+import org.apache.cassandra.thrift.ColumnPath;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.Constants;
+import org.apache.cassandra.thrift.Deletion;
+import org.apache.cassandra.thrift.IndexClause;
+import org.apache.cassandra.thrift.IndexExpression;
+import org.apache.cassandra.thrift.IndexOperator;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.KsDef;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.NotFoundException;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.apache.cassandra.thrift.SliceRange;
+import org.apache.cassandra.thrift.SuperColumn;
+import org.apache.cassandra.thrift.TokenRange;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * An in-memory stand-in for a single Cassandra node, implementing the
+ * thrift calls the client uses: describe_*, set_keyspace, get, get_slice,
+ * get_count, multiget_slice, get_range_slices, get_indexed_slices,
+ * insert, remove, batch_mutate, truncate and the system_* schema calls.
+ * Rows are kept in RandomPartitioner token order and columns in the
+ * order of the comparator of their column family, so paging behaves as
+ * on a real node. Every data call first sleeps latency milliseconds plus
+ * up to jitter milliseconds, to stand for the network and the disk.
+ * Tombstones are not kept: deleted columns are dropped at once.
+ */
+public class FakeCassandra {
+    public static final String CLUSTER_NAME = "Fake Cluster";
+    public static final String SNITCH = "org.apache.cassandra.locator.SimpleSnitch";
+
+    /**
+     * Position of a row on the ring, a null key standing
+     * for the first position of its token.
+     */
+    @SuppressWarnings("rawtypes")
+    private static class RowKey implements Comparable<RowKey> {
+        private final Token token;
+        private final ByteBuffer key;
+
+        private RowKey(Token token, ByteBuffer key) {
+            this.token = token;
+            this.key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compareTo(RowKey o) {
+            int c = token.compareTo(o.token);
+            if (c != 0) {
+                return c;
+            } else if (key == null || o.key == null) {
+                return key == o.key ? 0 : key == null ? -1 : 1;
+            }
+
+            return ByteBufferUtil.compareUnsigned(key, o.key);
+        }
+    }
+
+    private static class Row {
+        private final ByteBuffer key;
+        private final NavigableMap<ByteBuffer, Column> columns;
+        private final NavigableMap<ByteBuffer, NavigableMap<ByteBuffer, Column>> superColumns;
+
+        private Row(ByteBuffer key, Table table) {
+            this.key = key;
+            this.columns = new TreeMap<ByteBuffer, Column>(table.comparator);
+            this.superColumns = new TreeMap<ByteBuffer, NavigableMap<ByteBuffer, Column>>(table.comparator);
+        }
+
+        private boolean isEmpty() {
+            return columns.isEmpty() && superColumns.isEmpty();
+        }
+    }
+
+    private static class Table {
+        private final CfDef cfDef;
+        private final boolean superColumn;
+        private final AbstractType<?> comparator;
+        private final AbstractType<?> subComparator;
+        private final TreeMap<RowKey, Row> rows = new TreeMap<RowKey, Row>();
+
+        private Table(CfDef cfDef) throws InvalidRequestException {
+            this.cfDef = cfDef;
+            this.superColumn = "Super".equals(cfDef.getColumn_type());
+            this.comparator = parseType(cfDef.getComparator_type());
+            this.subComparator = parseType(cfDef.getSubcomparator_type());
+        }
+
+        /**
+         * @return the type of the values of the column name
+         */
+        private AbstractType<?> getValidator(ByteBuffer name) throws InvalidRequestException {
+            if (cfDef.getColumn_metadata() != null) {
+                for (ColumnDef columnDef : cfDef.getColumn_metadata()) {
+                    if (columnDef.bufferForName().equals(name)) {
+                        return parseType(columnDef.getValidation_class());
+                    }
+                }
+            }
+
+            return parseType(cfDef.getDefault_validation_class());
+        }
+
+        private boolean isIndexed(ByteBuffer name) {
+            if (cfDef.getColumn_metadata() != null) {
+                for (ColumnDef columnDef : cfDef.getColumn_metadata()) {
+                    if (columnDef.bufferForName().equals(name)) {
+                        return columnDef.isSetIndex_type();
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private final IPartitioner partitioner = new RandomPartitioner();
+    @SuppressWarnings("rawtypes")
+    private final Token nodeToken = partitioner.getMinimumToken();
+    private final Random random = new Random();
+
+    private final Map<String, KsDef> keyspaces = new LinkedHashMap<String, KsDef>();
+    private final Map<String, Map<String, Table>> tables = new HashMap<String, Map<String, Table>>();
+    private final ThreadLocal<String> keyspace = new ThreadLocal<String>();
+
+    private String endpoint = "127.0.0.1";
+    private String schemaVersion = UUID.randomUUID().toString();
+    private volatile long latency;
+    private volatile long jitter;
+
+    /**
+     * @return a thrift interface running the calls of this node, any
+     *         other call fails with an InvalidRequestException
+     */
+    public Cassandra.Iface asIface() {
+        return (Cassandra.Iface) Proxy.newProxyInstance(Cassandra.Iface.class.getClassLoader(),
+                                                        new Class<?>[] {Cassandra.Iface.class},
+                                                        new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Method m = null;
+                try {
+                    m = FakeCassandra.class.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException e) {
+                    throw new InvalidRequestException(method.getName() + " is not supported");
+                }
+
+                try {
+                    return m.invoke(FakeCassandra.this, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    public void set_keyspace(String keyspace) throws InvalidRequestException {
+        synchronized (this) {
+            if (!keyspaces.containsKey(keyspace)) {
+                throw new InvalidRequestException("Keyspace " + keyspace + " does not exist");
+            }
+        }
+        this.keyspace.set(keyspace);
+    }
+
+    public ColumnOrSuperColumn get(ByteBuffer key, ColumnPath columnPath, ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException, NotFoundException {
+        pause();
+
+        ColumnParent parent = new ColumnParent(columnPath.getColumn_family());
+        SlicePredicate predicate = new SlicePredicate();
+        if (columnPath.isSetSuper_column()) {
+            parent.setSuper_column(columnPath.bufferForSuper_column());
+        }
+        if (columnPath.isSetColumn()) {
+            predicate.setColumn_names(Arrays.asList(columnPath.bufferForColumn()));
+        } else if (columnPath.isSetSuper_column()) {
+            // the whole super column
+            parent.unsetSuper_column();
+            predicate.setColumn_names(Arrays.asList(columnPath.bufferForSuper_column()));
+        } else {
+            throw new InvalidRequestException("column path must name a column or a super column");
+        }
+
+        Table t = getTable(columnPath.getColumn_family());
+        List<ColumnOrSuperColumn> l = null;
+        synchronized (t) {
+            l = slice(t, t.rows.get(rowKey(key)), parent, predicate);
+        }
+        if (l.isEmpty()) {
+            throw new NotFoundException();
+        }
+
+        return l.get(0);
+    }
+
+    public List<ColumnOrSuperColumn> get_slice(ByteBuffer key,
+                                               ColumnParent columnParent,
+                                               SlicePredicate predicate,
+                                               ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        Table t = getTable(columnParent.getColumn_family());
+        synchronized (t) {
+            return slice(t, t.rows.get(rowKey(key)), columnParent, predicate);
+        }
+    }
+
+    public int get_count(ByteBuffer key,
+                         ColumnParent columnParent,
+                         SlicePredicate predicate,
+                         ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        return get_slice(key, columnParent, predicate, consistencyLevel).size();
+    }
+
+    public Map<ByteBuffer, List<ColumnOrSuperColumn>> multiget_slice(List<ByteBuffer> keys,
+                                                                     ColumnParent columnParent,
+                                                                     SlicePredicate predicate,
+                                                                     ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> m = new HashMap<ByteBuffer, List<ColumnOrSuperColumn>>();
+        Table t = getTable(columnParent.getColumn_family());
+        synchronized (t) {
+            for (ByteBuffer key : keys) {
+                m.put(key, slice(t, t.rows.get(rowKey(key)), columnParent, predicate));
+            }
+        }
+
+        return m;
+    }
+
+    public Map<ByteBuffer, Integer> multiget_count(List<ByteBuffer> keys,
+                                                   ColumnParent columnParent,
+                                                   SlicePredicate predicate,
+                                                   ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        Map<ByteBuffer, Integer> m = new HashMap<ByteBuffer, Integer>();
+        for (Entry<ByteBuffer, List<ColumnOrSuperColumn>> e :
+                multiget_slice(keys, columnParent, predicate, consistencyLevel).entrySet()) {
+            m.put(e.getKey(), e.getValue().size());
+        }
+
+        return m;
+    }
+
+    public List<KeySlice> get_range_slices(ColumnParent columnParent,
+                                           SlicePredicate predicate,
+                                           KeyRange range,
+                                           ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        List<KeySlice> l = new ArrayList<KeySlice>();
+        Table t = getTable(columnParent.getColumn_family());
+        synchronized (t) {
+            for (Row row : getRows(t, range)) {
+                l.add(new KeySlice(row.key.duplicate(), slice(t, row, columnParent, predicate)));
+            }
+        }
+
+        return l;
+    }
+
+    /**
+     * Rows are scanned from the start key, as no index is kept,
+     * but an EQ expression on an indexed column is still required.
+     */
+    public List<KeySlice> get_indexed_slices(ColumnParent columnParent,
+                                             IndexClause indexClause,
+                                             SlicePredicate columnPredicate,
+                                             ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        Table t = getTable(columnParent.getColumn_family());
+        boolean indexed = false;
+        for (IndexExpression expression : indexClause.getExpressions()) {
+            indexed |= expression.getOp() == IndexOperator.EQ &&
+                       t.isIndexed(expression.bufferForColumn_name());
+        }
+        if (!indexed) {
+            throw new InvalidRequestException("No indexed columns present in index clause with operator EQ");
+        }
+
+        List<KeySlice> l = new ArrayList<KeySlice>();
+        synchronized (t) {
+            ByteBuffer start = indexClause.bufferForStart_key();
+            NavigableMap<RowKey, Row> rows = start.hasRemaining() ? t.rows.tailMap(rowKey(start), true) : t.rows;
+            for (Row row : rows.values()) {
+                if (l.size() >= indexClause.getCount()) {
+                    break;
+                }
+                if (matches(t, row, indexClause.getExpressions())) {
+                    l.add(new KeySlice(row.key.duplicate(), slice(t, row, columnParent, columnPredicate)));
+                }
+            }
+        }
+
+        return l;
+    }
+
+    public void insert(ByteBuffer key, ColumnParent columnParent, Column column, ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        Table t = getTable(columnParent.getColumn_family());
+        synchronized (t) {
+            put(t, getOrCreateRow(t, key), columnParent.isSetSuper_column() ? columnParent.bufferForSuper_column() : null, column);
+        }
+    }
+
+    public void remove(ByteBuffer key, ColumnPath columnPath, long timestamp, ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        Table t = getTable(columnPath.getColumn_family());
+        synchronized (t) {
+            RowKey rowKey = rowKey(key);
+            Row row = t.rows.get(rowKey);
+            if (row == null) {
+                return;
+            }
+
+            delete(row,
+                   columnPath.isSetSuper_column() ? columnPath.bufferForSuper_column() : null,
+                   columnPath.isSetColumn() ? columnPath.bufferForColumn() : null,
+                   timestamp);
+            if (row.isEmpty()) {
+                t.rows.remove(rowKey);
+            }
+        }
+    }
+
+    public void batch_mutate(Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap, ConsistencyLevel consistencyLevel)
+            throws InvalidRequestException {
+        pause();
+
+        String ks = keyspace.get();
+        if (ks == null) {
+            throw new InvalidRequestException("You have not set a keyspace for this session");
+        }
+        mutate(ks, mutationMap);
+    }
+
+    public void truncate(String cfname) throws InvalidRequestException {
+        pause();
+
+        Table t = getTable(cfname);
+        synchronized (t) {
+            t.rows.clear();
+        }
+    }
+
+    public synchronized Map<String, List<String>> describe_schema_versions() {
+        Map<String, List<String>> m = new HashMap<String, List<String>>();
+        m.put(schemaVersion, Arrays.asList(endpoint));
+
+        return m;
+    }
+
+    public synchronized List<KsDef> describe_keyspaces() {
+        List<KsDef> l = new ArrayList<KsDef>();
+        for (String name : keyspaces.keySet()) {
+            l.add(getKsDef(name));
+        }
+
+        return l;
+    }
+
+    public String describe_cluster_name() {
+        return CLUSTER_NAME;
+    }
+
+    public String describe_version() {
+        return Constants.VERSION;
+    }
+
+    /**
+     * The node owns the whole ring.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<TokenRange> describe_ring(String keyspace) throws InvalidRequestException {
+        if (!keyspaces.containsKey(keyspace)) {
+            throw new InvalidRequestException("There is no ring for the keyspace: " + keyspace);
+        }
+
+        String token = partitioner.getTokenFactory().toString(nodeToken);
+        TokenRange range = new TokenRange();
+        range.setStart_token(token);
+        range.setEnd_token(token);
+        range.setEndpoints(Arrays.asList(endpoint));
+        range.setRpc_endpoints(Arrays.asList(endpoint));
+
+        return Arrays.asList(range);
+    }
+
+    public String describe_partitioner() {
+        return partitioner.getClass().getName();
+    }
+
+    public String describe_snitch() {
+        return SNITCH;
+    }
+
+    public synchronized KsDef describe_keyspace(String keyspace) throws NotFoundException {
+        if (!keyspaces.containsKey(keyspace)) {
+            throw new NotFoundException();
+        }
+
+        return getKsDef(keyspace);
+    }
+
+    /**
+     * @return the tokens of every keysPerSplit-th row of the range,
+     *         between startToken and endToken
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public List<String> describe_splits(String cfName, String startToken, String endToken, int keysPerSplit)
+            throws InvalidRequestException {
+        Token.TokenFactory tf = partitioner.getTokenFactory();
+        KeyRange range = new KeyRange(Integer.MAX_VALUE);
+        range.setStart_token(startToken);
+        range.setEnd_token(endToken);
+
+        List<String> tokens = new ArrayList<String>();
+        tokens.add(startToken);
+        Table t = getTable(cfName);
+        synchronized (t) {
+            int i = 0;
+            for (Row row : getRows(t, range)) {
+                if (++i % keysPerSplit == 0) {
+                    tokens.add(tf.toString(partitioner.getToken(row.key)));
+                }
+            }
+        }
+        if (!tokens.get(tokens.size() - 1).equals(endToken)) {
+            tokens.add(endToken);
+        }
+
+        return tokens;
+    }
+
+    public synchronized String system_add_keyspace(KsDef ksDef) throws InvalidRequestException {
+        if (keyspaces.containsKey(ksDef.getName())) {
+            throw new InvalidRequestException("Keyspace names must be case-insensitively unique");
+        }
+
+        KsDef copy = ksDef.deepCopy();
+        copy.setCf_defs(new ArrayList<CfDef>());
+        keyspaces.put(ksDef.getName(), copy);
+        tables.put(ksDef.getName(), new LinkedHashMap<String, Table>());
+        if (ksDef.getCf_defs() != null) {
+            for (CfDef cfDef : ksDef.getCf_defs()) {
+                system_add_column_family(cfDef);
+            }
+        }
+
+        return newSchemaVersion();
+    }
+
+    public synchronized String system_drop_keyspace(String keyspace) throws InvalidRequestException {
+        if (keyspaces.remove(keyspace) == null) {
+            throw new InvalidRequestException("Keyspace does not exist.");
+        }
+        tables.remove(keyspace);
+
+        return newSchemaVersion();
+    }
+
+    public synchronized String system_update_keyspace(KsDef ksDef) throws InvalidRequestException {
+        if (!keyspaces.containsKey(ksDef.getName())) {
+            throw new InvalidRequestException("Keyspace does not exist.");
+        }
+
+        KsDef copy = ksDef.deepCopy();
+        copy.setCf_defs(new ArrayList<CfDef>());
+        keyspaces.put(ksDef.getName(), copy);
+
+        return newSchemaVersion();
+    }
+
+    public synchronized String system_add_column_family(CfDef cfDef) throws InvalidRequestException {
+        Map<String, Table> m = tables.get(cfDef.getKeyspace());
+        if (m == null) {
+            throw new InvalidRequestException("Keyspace " + cfDef.getKeyspace() + " does not exist");
+        } else if (m.containsKey(cfDef.getName())) {
+            throw new InvalidRequestException(cfDef.getName() + " already exists in keyspace " + cfDef.getKeyspace());
+        }
+        m.put(cfDef.getName(), new Table(cfDef.deepCopy()));
+
+        return newSchemaVersion();
+    }
+
+    public synchronized String system_drop_column_family(String columnFamily) throws InvalidRequestException {
+        getTable(columnFamily);
+        tables.get(keyspace.get()).remove(columnFamily);
+
+        return newSchemaVersion();
+    }
+
+    /**
+     * Only the metadata changes, the comparators of the rows stay the same.
+     */
+    public synchronized String system_update_column_family(CfDef cfDef) throws InvalidRequestException {
+        Map<String, Table> m = tables.get(cfDef.getKeyspace());
+        Table t = m == null ? null : m.get(cfDef.getName());
+        if (t == null) {
+            throw new InvalidRequestException("Could not find column family " + cfDef.getName());
+        }
+
+        Table updated = new Table(cfDef.deepCopy());
+        synchronized (t) {
+            updated.rows.putAll(t.rows);
+        }
+        m.put(cfDef.getName(), updated);
+
+        return newSchemaVersion();
+    }
+
+    synchronized Set<String> getKeyspaces() {
+        return new HashSet<String>(keyspaces.keySet());
+    }
+
+    synchronized Set<String> getColumnFamilies(String keyspace) {
+        Map<String, Table> m = tables.get(keyspace);
+        return m == null ? new HashSet<String>() : new HashSet<String>(m.keySet());
+    }
+
+    /**
+     * Apply mutations to the column families of keyspace, without pausing.
+     */
+    void mutate(String keyspace, Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap)
+            throws InvalidRequestException {
+        for (Entry<ByteBuffer, Map<String, List<Mutation>>> e : mutationMap.entrySet()) {
+            for (Entry<String, List<Mutation>> cfe : e.getValue().entrySet()) {
+                Table t = getTable(keyspace, cfe.getKey());
+                synchronized (t) {
+                    Row row = getOrCreateRow(t, e.getKey());
+                    for (Mutation mutation : cfe.getValue()) {
+                        mutate(t, row, mutation);
+                    }
+                    if (row.isEmpty()) {
+                        t.rows.remove(rowKey(row.key));
+                    }
+                }
+            }
+        }
+    }
+
+    private void mutate(Table t, Row row, Mutation mutation) throws InvalidRequestException {
+        if (mutation.isSetColumn_or_supercolumn()) {
+            ColumnOrSuperColumn cosc = mutation.getColumn_or_supercolumn();
+            if (cosc.isSetColumn()) {
+                put(t, row, null, cosc.getColumn());
+            } else if (cosc.isSetSuper_column()) {
+                SuperColumn sc = cosc.getSuper_column();
+                for (Column column : sc.getColumns()) {
+                    put(t, row, sc.bufferForName(), column);
+                }
+            } else {
+                throw new InvalidRequestException("counter columns are not supported");
+            }
+        }
+
+        if (mutation.isSetDeletion()) {
+            Deletion deletion = mutation.getDeletion();
+            ByteBuffer superColumn = deletion.isSetSuper_column() ? deletion.bufferForSuper_column() : null;
+            if (deletion.isSetPredicate() && deletion.getPredicate().isSetColumn_names()) {
+                for (ByteBuffer name : deletion.getPredicate().getColumn_names()) {
+                    delete(row, superColumn, name, deletion.getTimestamp());
+                }
+            } else {
+                delete(row, superColumn, null, deletion.getTimestamp());
+            }
+        }
+    }
+
+    /**
+     * Write column unless a newer one of the same name is there.
+     */
+    private void put(Table t, Row row, ByteBuffer superColumn, Column column) throws InvalidRequestException {
+        if (!column.isSetTimestamp()) {
+            throw new InvalidRequestException("Column timestamp is required");
+        } else if (t.superColumn && superColumn == null) {
+            throw new InvalidRequestException("missing super column for a super column family");
+        }
+
+        NavigableMap<ByteBuffer, Column> m = row.columns;
+        if (t.superColumn) {
+            m = row.superColumns.get(superColumn);
+            if (m == null) {
+                m = new TreeMap<ByteBuffer, Column>(t.subComparator);
+                row.superColumns.put(ByteBufferUtil.clone(superColumn), m);
+            }
+        }
+
+        Column old = m.get(column.bufferForName());
+        if (old == null || old.getTimestamp() <= column.getTimestamp()) {
+            Column c = column.deepCopy();
+            m.put(c.bufferForName(), c);
+        }
+    }
+
+    /**
+     * Remove the columns written before timestamp: name of superColumn,
+     * or of the row when superColumn is null, every column when name is null.
+     */
+    private void delete(Row row, ByteBuffer superColumn, ByteBuffer name, long timestamp) {
+        if (superColumn == null && !row.superColumns.isEmpty()) {
+            if (name != null) {
+                // a whole super column
+                NavigableMap<ByteBuffer, Column> m = row.superColumns.get(name);
+                if (m != null) {
+                    deleteOlder(m, null, timestamp);
+                    if (m.isEmpty()) {
+                        row.superColumns.remove(name);
+                    }
+                }
+                return;
+            }
+
+            for (Iterator<NavigableMap<ByteBuffer, Column>> i = row.superColumns.values().iterator(); i.hasNext();) {
+                NavigableMap<ByteBuffer, Column> m = i.next();
+                deleteOlder(m, null, timestamp);
+                if (m.isEmpty()) {
+                    i.remove();
+                }
+            }
+        } else if (superColumn == null) {
+            deleteOlder(row.columns, name, timestamp);
+        } else {
+            NavigableMap<ByteBuffer, Column> m = row.superColumns.get(superColumn);
+            if (m != null) {
+                deleteOlder(m, name, timestamp);
+                if (m.isEmpty()) {
+                    row.superColumns.remove(superColumn);
+                }
+            }
+        }
+    }
+
+    private static void deleteOlder(NavigableMap<ByteBuffer, Column> m, ByteBuffer name, long timestamp) {
+        if (name != null) {
+            Column c = m.get(name);
+            if (c != null && c.getTimestamp() <= timestamp) {
+                m.remove(name);
+            }
+            return;
+        }
+
+        for (Iterator<Column> i = m.values().iterator(); i.hasNext();) {
+            if (i.next().getTimestamp() <= timestamp) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the columns of row selected by predicate, the super
+     *         columns of a super column family without a super column in parent
+     */
+    private List<ColumnOrSuperColumn> slice(Table t, Row row, ColumnParent parent, SlicePredicate predicate)
+            throws InvalidRequestException {
+        List<ColumnOrSuperColumn> l = new ArrayList<ColumnOrSuperColumn>();
+        if (row == null) {
+            return l;
+        }
+
+        if (t.superColumn && !parent.isSetSuper_column()) {
+            for (ByteBuffer name : select(row.superColumns, predicate)) {
+                SuperColumn sc = new SuperColumn(name.duplicate(),
+                                                 new ArrayList<Column>(row.superColumns.get(name).values()));
+                ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+                cosc.setSuper_column(sc);
+                l.add(cosc);
+            }
+            return l;
+        }
+
+        NavigableMap<ByteBuffer, Column> m = row.columns;
+        if (t.superColumn) {
+            m = row.superColumns.get(parent.bufferForSuper_column());
+            if (m == null) {
+                return l;
+            }
+        }
+        for (ByteBuffer name : select(m, predicate)) {
+            ColumnOrSuperColumn cosc = new ColumnOrSuperColumn();
+            cosc.setColumn(m.get(name));
+            l.add(cosc);
+        }
+
+        return l;
+    }
+
+    private static <V> List<ByteBuffer> select(NavigableMap<ByteBuffer, V> m, SlicePredicate predicate)
+            throws InvalidRequestException {
+        List<ByteBuffer> names = new ArrayList<ByteBuffer>();
+        if (predicate.isSetColumn_names()) {
+            for (ByteBuffer name : predicate.getColumn_names()) {
+                if (m.containsKey(name)) {
+                    names.add(name);
+                }
+            }
+            return names;
+        } else if (!predicate.isSetSlice_range()) {
+            throw new InvalidRequestException("predicate column_names and slice_range may not both be null");
+        }
+
+        SliceRange range = predicate.getSlice_range();
+        NavigableMap<ByteBuffer, V> s = range.isReversed() ? m.descendingMap() : m;
+        if (range.bufferForStart().hasRemaining()) {
+            s = s.tailMap(range.bufferForStart(), true);
+        }
+        if (range.bufferForFinish().hasRemaining()) {
+            s = s.headMap(range.bufferForFinish(), true);
+        }
+        for (ByteBuffer name : s.keySet()) {
+            if (names.size() >= range.getCount()) {
+                break;
+            }
+            names.add(name);
+        }
+
+        return names;
+    }
+
+    /**
+     * @return at most range.count rows, from start key to end key
+     *         both included, or from start token excluded to end token
+     *         included, wrapping around the ring
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<Row> getRows(Table t, KeyRange range) throws InvalidRequestException {
+        List<Row> l = new ArrayList<Row>();
+        if (range.isSetStart_key()) {
+            ByteBuffer start = range.bufferForStart_key();
+            RowKey end = range.isSetEnd_key() && range.bufferForEnd_key().hasRemaining() ?
+                             rowKey(range.bufferForEnd_key()) :
+                             null;
+            NavigableMap<RowKey, Row> rows = start.hasRemaining() ? t.rows.tailMap(rowKey(start), true) : t.rows;
+            for (Entry<RowKey, Row> e : rows.entrySet()) {
+                if (l.size() >= range.getCount() || (end != null && e.getKey().compareTo(end) > 0)) {
+                    break;
+                }
+                l.add(e.getValue());
+            }
+            return l;
+        } else if (!range.isSetStart_token() || !range.isSetEnd_token()) {
+            throw new InvalidRequestException("exactly one of start_key and start_token must be set");
+        }
+
+        Token.TokenFactory tf = partitioner.getTokenFactory();
+        Token start = tf.fromString(range.getStart_token());
+        Token end = tf.fromString(range.getEnd_token());
+        boolean toEnd = end.equals(partitioner.getMinimumToken());
+        boolean wrap = !toEnd && start.compareTo(end) >= 0;
+
+        for (Entry<RowKey, Row> e : t.rows.tailMap(new RowKey(start, null), true).entrySet()) {
+            if (l.size() >= range.getCount() || (!wrap && !toEnd && e.getKey().token.compareTo(end) > 0)) {
+                return l;
+            } else if (e.getKey().token.compareTo(start) > 0) {
+                l.add(e.getValue());
+            }
+        }
+        if (wrap) {
+            for (Entry<RowKey, Row> e : t.rows.entrySet()) {
+                if (l.size() >= range.getCount() || e.getKey().token.compareTo(end) > 0) {
+                    break;
+                }
+                l.add(e.getValue());
+            }
+        }
+
+        return l;
+    }
+
+    private boolean matches(Table t, Row row, List<IndexExpression> expressions) throws InvalidRequestException {
+        for (IndexExpression expression : expressions) {
+            Column c = row.columns.get(expression.bufferForColumn_name());
+            if (c == null) {
+                return false;
+            }
+
+            int cmp = t.getValidator(expression.bufferForColumn_name()).compare(c.bufferForValue(),
+                                                                                  expression.bufferForValue());
+            switch (expression.getOp()) {
+            case EQ:
+                if (cmp != 0) {
+                    return false;
+                }
+                break;
+            case GT:
+                if (cmp <= 0) {
+                    return false;
+                }
+                break;
+            case GTE:
+                if (cmp < 0) {
+                    return false;
+                }
+                break;
+            case LT:
+                if (cmp >= 0) {
+                    return false;
+                }
+                break;
+            case LTE:
+                if (cmp > 0) {
+                    return false;
+                }
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    private Row getOrCreateRow(Table t, ByteBuffer key) {
+        RowKey rowKey = rowKey(key);
+        Row row = t.rows.get(rowKey);
+        if (row == null) {
+            ByteBuffer k = ByteBufferUtil.clone(key);
+            row = new Row(k, t);
+            t.rows.put(new RowKey(rowKey.token, k), row);
+        }
+
+        return row;
+    }
+
+    private RowKey rowKey(ByteBuffer key) {
+        return new RowKey(partitioner.getToken(key), key);
+    }
+
+    private Table getTable(String columnFamily) throws InvalidRequestException {
+        String ks = keyspace.get();
+        if (ks == null) {
+            throw new InvalidRequestException("You have not set a keyspace for this session");
+        }
+
+        return getTable(ks, columnFamily);
+    }
+
+    private synchronized Table getTable(String keyspace, String columnFamily) throws InvalidRequestException {
+        Map<String, Table> m = tables.get(keyspace);
+        Table t = m == null ? null : m.get(columnFamily);
+        if (t == null) {
+            throw new InvalidRequestException("unconfigured columnfamily " + columnFamily);
+        }
+
+        return t;
+    }
+
+    private KsDef getKsDef(String keyspace) {
+        KsDef ksDef = keyspaces.get(keyspace).deepCopy();
+        List<CfDef> cfDefs = new ArrayList<CfDef>();
+        for (Table t : tables.get(keyspace).values()) {
+            cfDefs.add(t.cfDef.deepCopy());
+        }
+        ksDef.setCf_defs(cfDefs);
+
+        return ksDef;
+    }
+
+    private String newSchemaVersion() {
+        schemaVersion = UUID.randomUUID().toString();
+        return schemaVersion;
+    }
+
+    private void pause() {
+        long l = latency;
+        long j = jitter;
+        if (l <= 0 && j <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(l + (j > 0 ? (long) (random.nextDouble() * j) : 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AbstractType<?> parseType(String type) throws InvalidRequestException {
+        try {
+            return TypeParser.parse(type == null ? "BytesType" : type);
+        } catch (ConfigurationException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the address the node reports in the ring
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @param endpoint the address the node reports in the ring, clients connect to it
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the milliseconds every data call sleeps
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param latency the milliseconds every data call sleeps
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @return the upper bound of the random milliseconds added to the latency
+     */
+    public long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @param jitter the upper bound of the random milliseconds added to the latency
+     */
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+}
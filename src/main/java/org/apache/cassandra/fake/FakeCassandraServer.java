@@ -0,0 +1,120 @@
+package org.apache.cassandra.fake;
+
+import org.apache.cassandra.client.Client;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TServerSocket;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * Serves a {@link FakeCassandra} over framed binary thrift, as a Cassandra
+ * node does, so the client and the GUI can be run, benchmarked and checked
+ * against it without a cluster. Each connection is served by its own thread,
+ * which keeps the keyspace set by set_keyspace. There is no JMX, so the ring,
+ * node info and tpstats views fail against it.
+ */
+public class FakeCassandraServer {
+    public static final String KEYSPACE = "Keyspace1";
+    public static final String STANDARD_COLUMN_FAMILY = "Standard1";
+    public static final String SUPER_COLUMN_FAMILY = "Super1";
+    public static final int SUPER_COLUMNS = 10;
+
+    private static final String USAGE =
+        "usage: FakeCassandraServer [<thrift port> [<latency ms> [<rows> [<columns per row> [<value size>]]]]]";
+
+    private FakeCassandra cassandra;
+    private int port;
+    private TServer server;
+    private Thread thread;
+
+    public FakeCassandraServer(FakeCassandra cassandra, int port) {
+        this.cassandra = cassandra;
+        this.port = port;
+    }
+
+    /**
+     * Listen on the port and serve requests from a daemon thread.
+     */
+    public synchronized void start() throws TTransportException {
+        TThreadPoolServer.Args args = new TThreadPoolServer.Args(new TServerSocket(port));
+        args.processor(new Cassandra.Processor<Cassandra.Iface>(cassandra.asIface()));
+        args.transportFactory(new TFramedTransport.Factory());
+        args.protocolFactory(new TBinaryProtocol.Factory());
+        server = new TThreadPoolServer(args);
+
+        thread = new Thread("FakeCassandraServer") {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (server != null) {
+            server.stop();
+            thread.join();
+            server = null;
+            thread = null;
+        }
+    }
+
+    /**
+     * @return the node served
+     */
+    public FakeCassandra getCassandra() {
+        return cassandra;
+    }
+
+    /**
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Serve Keyspace1, with rows rows of the standard column family Standard1
+     * and of the super column family Super1, until the process is killed.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 5) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        int port = args.length > 0 ? Integer.valueOf(args[0]) : Client.DEFAULT_THRIFT_PORT;
+        long latency = args.length > 1 ? Long.valueOf(args[1]) : 0;
+        int rows = args.length > 2 ? Integer.valueOf(args[2]) : 1000;
+        int columns = args.length > 3 ? Integer.valueOf(args[3]) : 10;
+        int valueSize = args.length > 4 ? Integer.valueOf(args[4]) : 32;
+
+        FakeCassandra cassandra = new FakeCassandra();
+        try {
+            DataGenerator generator = new DataGenerator(cassandra, 0);
+            generator.generate(KEYSPACE, STANDARD_COLUMN_FAMILY, rows, columns, valueSize);
+            generator.generateSuper(KEYSPACE, SUPER_COLUMN_FAMILY, rows, SUPER_COLUMNS, columns, valueSize);
+            cassandra.setLatency(latency);
+
+            new FakeCassandraServer(cassandra, port).start();
+        } catch (InvalidRequestException e) {
+            System.err.println("error: " + e.getWhy());
+            System.exit(1);
+        } catch (TTransportException e) {
+            System.err.println("error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.err.println("serving " + KEYSPACE + " on port " + port);
+        Thread.currentThread().join();
+    }
+}
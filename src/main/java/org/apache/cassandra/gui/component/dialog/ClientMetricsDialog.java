@@ -0,0 +1,171 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.cassandra.client.ClientMetrics;
+import org.apache.cassandra.client.LatencyHistogram;
+import org.apache.cassandra.client.OperationStats;
+
+/**
+ * Shows the count, errors, bytes and latencies of every operation
+ * the client sent to the cluster, refreshed every second.
+ */
+public class ClientMetricsDialog extends JDialog {
+    private static final long serialVersionUID = 4916286023515377704L;
+
+    private static final String[] columns = {"Operation", "Count", "Errors", "Sent", "Received",
+                                             "Mean (us)", "50% (us)", "95% (us)", "99% (us)", "Max (us)"};
+    private static final int REFRESH_INTERVAL = 1000;
+
+    private class MetricsTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = -6419624683316712958L;
+
+        private List<OperationStats> rows = new ArrayList<OperationStats>();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            OperationStats s = rows.get(row);
+            LatencyHistogram h = s.getLatency();
+            switch (column) {
+            case 0:
+                return s.getName();
+            case 1:
+                return s.getCount();
+            case 2:
+                return s.getErrors();
+            case 3:
+                return s.getBytesSent();
+            case 4:
+                return s.getBytesReceived();
+            case 5:
+                return h.getMean();
+            case 6:
+                return h.getPercentile(50);
+            case 7:
+                return h.getPercentile(95);
+            case 8:
+                return h.getPercentile(99);
+            }
+
+            return h.getMax();
+        }
+
+        private void refresh() {
+            List<OperationStats> l = metrics.getAll();
+            if (l.size() == rows.size()) {
+                rows = l;
+                fireTableRowsUpdated(0, rows.size() - 1);
+            } else {
+                rows = l;
+                fireTableDataChanged();
+            }
+        }
+    }
+
+    private ClientMetrics metrics;
+    private MetricsTableModel tableModel = new MetricsTableModel();
+    private Timer timer;
+
+    public ClientMetricsDialog(ClientMetrics metrics) {
+        this.metrics = metrics;
+
+        JTable table = new JTable(tableModel);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setAutoCreateRowSorter(true);
+
+        JScrollPane scrollPane = new JScrollPane(table);
+
+        timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                tableModel.refresh();
+            }
+        });
+
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ClientMetricsDialog.this.metrics.reset();
+                tableModel.refresh();
+            }
+        });
+
+        JButton ok = new JButton("OK");
+        ok.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                timer.stop();
+                setVisible(false);
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                timer.stop();
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(reset);
+        buttonPanel.add(ok);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("Client metrics");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    /**
+     * Show the dialog, refreshing it until it is closed.
+     */
+    public void monitor() {
+        tableModel.refresh();
+        timer.start();
+        setVisible(true);
+    }
+}
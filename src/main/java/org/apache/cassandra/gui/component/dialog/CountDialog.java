@@ -0,0 +1,137 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+
+import org.apache.cassandra.client.CountCallback;
+import org.apache.cassandra.client.RowCounter;
+
+/**
+ * Runs a count in the background and shows its progress.
+ * With a null key the rows of the column family are counted,
+ * otherwise the columns of key, or of its superColumn.
+ */
+public class CountDialog extends JDialog {
+    private static final long serialVersionUID = -6712905385183467201L;
+
+    private JLabel statusLabel = new JLabel("counting");
+    private JLabel countLabel = new JLabel("0");
+    private JButton button = new JButton("Cancel");
+
+    private RowCounter counter;
+    private SwingWorker<Long, Long> worker;
+
+    public CountDialog(final RowCounter counter, final String key, final String superColumn) {
+        this.counter = counter;
+
+        JPanel statsPanel = new JPanel(new GridLayout(2, 2));
+        statsPanel.add(new JLabel("status:"));
+        statsPanel.add(statusLabel);
+        statsPanel.add(new JLabel(key == null ? "rows:" : "columns:"));
+        statsPanel.add(countLabel);
+
+        worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                CountCallback callback = new CountCallback() {
+                    @Override
+                    public void countCallback(long count) {
+                        publish(count);
+                    }
+                };
+
+                if (key == null) {
+                    return counter.countRows(callback);
+                }
+                return counter.countColumns(key, superColumn, callback);
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                countLabel.setText(String.valueOf(chunks.get(chunks.size() - 1)));
+            }
+
+            @Override
+            protected void done() {
+                button.setText("OK");
+                try {
+                    countLabel.setText(String.valueOf(get()));
+                    statusLabel.setText("done");
+                } catch (CancellationException e) {
+                    statusLabel.setText("cancelled");
+                } catch (InterruptedException e) {
+                    statusLabel.setText("cancelled");
+                } catch (ExecutionException e) {
+                    statusLabel.setText("failed");
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
+                }
+            }
+        };
+
+        button.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!worker.isDone()) {
+                    cancel();
+                    return;
+                }
+                setVisible(false);
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancel();
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(button);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(statsPanel, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle(key == null ? "count rows" : "count columns(" + key + ")");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    /**
+     * Start the count and show the dialog until it is closed.
+     */
+    public void count() {
+        worker.execute();
+        setVisible(true);
+    }
+
+    /**
+     * The counter stops between two calls, a call already
+     * sent is not interrupted.
+     */
+    private void cancel() {
+        counter.cancel();
+        worker.cancel(false);
+    }
+}
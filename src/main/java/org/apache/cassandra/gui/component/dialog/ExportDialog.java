@@ -0,0 +1,138 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+
+import org.apache.cassandra.client.Exporter;
+
+/**
+ * Runs an export in the background and shows its progress.
+ */
+public class ExportDialog extends JDialog {
+    private static final long serialVersionUID = 2284526129730641963L;
+
+    private JLabel statusLabel = new JLabel("exporting");
+    private JLabel rowsLabel = new JLabel("0");
+    private JLabel rowsRateLabel = new JLabel("0");
+    private JLabel bytesRateLabel = new JLabel("0");
+    private JButton button = new JButton("Cancel");
+
+    private Exporter exporter;
+    private SwingWorker<Long, Long> worker;
+
+    public ExportDialog(final Exporter exporter, final File file) {
+        this.exporter = exporter;
+
+        JPanel statsPanel = new JPanel(new GridLayout(4, 2));
+        statsPanel.add(new JLabel("status:"));
+        statsPanel.add(statusLabel);
+        statsPanel.add(new JLabel("rows:"));
+        statsPanel.add(rowsLabel);
+        statsPanel.add(new JLabel("rows/sec:"));
+        statsPanel.add(rowsRateLabel);
+        statsPanel.add(new JLabel("bytes/sec:"));
+        statsPanel.add(bytesRateLabel);
+
+        worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                exporter.open(file);
+                try {
+                    while (!isCancelled() && exporter.exportPage()) {
+                        publish(exporter.getRows());
+                    }
+                } finally {
+                    exporter.close();
+                }
+
+                return exporter.getRows();
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                updateStats();
+            }
+
+            @Override
+            protected void done() {
+                updateStats();
+                button.setText("OK");
+                try {
+                    get();
+                    statusLabel.setText("done");
+                } catch (CancellationException e) {
+                    statusLabel.setText("cancelled");
+                } catch (InterruptedException e) {
+                    statusLabel.setText("cancelled");
+                } catch (ExecutionException e) {
+                    statusLabel.setText("failed");
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
+                }
+            }
+        };
+
+        button.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!worker.isDone()) {
+                    worker.cancel(true);
+                    return;
+                }
+                setVisible(false);
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                worker.cancel(true);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(button);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(statsPanel, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("export(" + file.getName() + ")");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    /**
+     * Start the export and show the dialog until it is closed.
+     */
+    public void export() {
+        worker.execute();
+        setVisible(true);
+    }
+
+    private void updateStats() {
+        rowsLabel.setText(String.valueOf(exporter.getRows()));
+        rowsRateLabel.setText(String.valueOf(exporter.getRowsPerSecond()));
+        bytesRateLabel.setText(String.valueOf(exporter.getBytesPerSecond()));
+    }
+}
@@ -0,0 +1,146 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import org.apache.cassandra.client.Importer;
+
+/**
+ * Runs an import in the background and shows its progress.
+ */
+public class ImportDialog extends JDialog {
+    private static final long serialVersionUID = -3906817212409236419L;
+
+    private static final int REFRESH_INTERVAL = 500;
+
+    private JLabel statusLabel = new JLabel("importing");
+    private JLabel rowsLabel = new JLabel("0");
+    private JLabel columnsLabel = new JLabel("0");
+    private JLabel failedRowsLabel = new JLabel("0");
+    private JLabel rowsRateLabel = new JLabel("0");
+    private JButton button = new JButton("Cancel");
+
+    private Importer importer;
+    private SwingWorker<Long, Void> worker;
+    private Timer timer;
+
+    public ImportDialog(final Importer importer, final File file) {
+        this.importer = importer;
+
+        JPanel statsPanel = new JPanel(new GridLayout(5, 2));
+        statsPanel.add(new JLabel("status:"));
+        statsPanel.add(statusLabel);
+        statsPanel.add(new JLabel("rows:"));
+        statsPanel.add(rowsLabel);
+        statsPanel.add(new JLabel("columns:"));
+        statsPanel.add(columnsLabel);
+        statsPanel.add(new JLabel("failed rows:"));
+        statsPanel.add(failedRowsLabel);
+        statsPanel.add(new JLabel("rows/sec:"));
+        statsPanel.add(rowsRateLabel);
+
+        // batches finish on the importer threads, so poll the counters
+        timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateStats();
+            }
+        });
+
+        worker = new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return importer.importFile(file);
+            }
+
+            @Override
+            protected void done() {
+                timer.stop();
+                updateStats();
+                button.setText("OK");
+                try {
+                    get();
+                    statusLabel.setText(importer.isCancelled() ? "cancelled" : "done");
+                    if (importer.getLastError() != null) {
+                        JOptionPane.showMessageDialog(null,
+                                                      importer.getFailedRows() + " rows failed, last error: " +
+                                                      importer.getLastError().getMessage());
+                    }
+                } catch (CancellationException e) {
+                    statusLabel.setText("cancelled");
+                } catch (InterruptedException e) {
+                    statusLabel.setText("cancelled");
+                } catch (ExecutionException e) {
+                    statusLabel.setText("failed");
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
+                }
+            }
+        };
+
+        button.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!worker.isDone()) {
+                    importer.cancel();
+                    return;
+                }
+                setVisible(false);
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                importer.cancel();
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(button);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(statsPanel, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("import(" + file.getName() + ")");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    /**
+     * Start the import and show the dialog until it is closed.
+     */
+    public void importFile() {
+        timer.start();
+        worker.execute();
+        setVisible(true);
+    }
+
+    private void updateStats() {
+        rowsLabel.setText(String.valueOf(importer.getRows()));
+        columnsLabel.setText(String.valueOf(importer.getColumns()));
+        failedRowsLabel.setText(String.valueOf(importer.getFailedRows()));
+        rowsRateLabel.setText(String.valueOf(importer.getRowsPerSecond()));
+    }
+}
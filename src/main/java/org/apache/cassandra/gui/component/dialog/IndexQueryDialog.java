@@ -0,0 +1,180 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultCellEditor;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import org.apache.cassandra.client.ColumnFamilyCodecs;
+import org.apache.cassandra.thrift.IndexExpression;
+import org.apache.cassandra.thrift.IndexOperator;
+
+/**
+ * Builds the expressions of a secondary index query. Names and values
+ * are encoded with the codecs of the column family, so they are typed
+ * as the column tree shows them.
+ */
+public class IndexQueryDialog extends JDialog {
+    private static final long serialVersionUID = -3187920315539473562L;
+
+    private static final int COLUMN_NAME = 0;
+    private static final int COLUMN_OPERATOR = 1;
+    private static final int COLUMN_VALUE = 2;
+
+    private List<String> indexedColumns;
+    private ColumnFamilyCodecs codecs;
+    private DefaultTableModel model = new DefaultTableModel(new Object[] {"Column Name", "Operator", "Value"}, 0);
+    private JTable table = new JTable(model);
+    private boolean cancel = true;
+    private List<IndexExpression> expressions;
+
+    /**
+     * @param indexedColumns names of the indexed columns of the column family
+     */
+    public IndexQueryDialog(List<String> indexedColumns, ColumnFamilyCodecs codecs) {
+        this.indexedColumns = indexedColumns;
+        this.codecs = codecs;
+
+        // JComboBox has no type parameter on Java 6, the target of the build
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        JComboBox nameCb = new JComboBox(indexedColumns.toArray());
+        nameCb.setEditable(true);
+        nameCb.setBorder(BorderFactory.createEmptyBorder());
+        table.getColumnModel().getColumn(COLUMN_NAME).setCellEditor(new DefaultCellEditor(nameCb));
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        JComboBox operatorCb = new JComboBox(IndexOperator.values());
+        operatorCb.setBorder(BorderFactory.createEmptyBorder());
+        table.getColumnModel().getColumn(COLUMN_OPERATOR).setCellEditor(new DefaultCellEditor(operatorCb));
+
+        model.addRow(new Object[] {indexedColumns.get(0), IndexOperator.EQ, ""});
+
+        JButton add = new JButton("add");
+        add.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                model.addRow(new Object[] {"", IndexOperator.EQ, ""});
+            }
+        });
+        JButton remove = new JButton("remove");
+        remove.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int row = table.getSelectedRow();
+                if (row >= 0) {
+                    stopEditing();
+                    model.removeRow(row);
+                }
+            }
+        });
+        JButton ok = new JButton("OK");
+        ok.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                enterAction();
+            }
+        });
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setVisible(false);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(add);
+        buttonPanel.add(remove);
+        buttonPanel.add(ok);
+        buttonPanel.add(cancel);
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(400, 120));
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("index query");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    private void stopEditing() {
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+    }
+
+    private void enterAction() {
+        stopEditing();
+
+        List<IndexExpression> l = new ArrayList<IndexExpression>();
+        boolean indexed = false;
+        for (int i = 0; i < model.getRowCount(); i++) {
+            Object name = model.getValueAt(i, COLUMN_NAME);
+            if (name == null || name.toString().isEmpty()) {
+                JOptionPane.showMessageDialog(null, "Enter Column Name.");
+                return;
+            }
+            IndexOperator op = (IndexOperator) model.getValueAt(i, COLUMN_OPERATOR);
+            Object value = model.getValueAt(i, COLUMN_VALUE);
+
+            IndexExpression expression = new IndexExpression();
+            try {
+                expression.setColumn_name(codecs.getNameCodec().encode(name.toString()));
+                expression.setValue(codecs.getValueCodec(expression.getColumn_name())
+                                          .encode(value == null ? "" : value.toString()));
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(null, "error: " + name + ": " + e.getMessage());
+                return;
+            }
+            expression.setOp(op);
+            l.add(expression);
+
+            indexed |= op == IndexOperator.EQ && indexedColumns.contains(name.toString());
+        }
+
+        if (!indexed) {
+            JOptionPane.showMessageDialog(null, "Enter an EQ expression on an indexed column.");
+            return;
+        }
+
+        expressions = l;
+
+        setVisible(false);
+        cancel = false;
+    }
+
+    /**
+     * @return the cancel
+     */
+    public boolean isCancel() {
+        return cancel;
+    }
+
+    /**
+     * @return the expressions
+     */
+    public List<IndexExpression> getExpressions() {
+        return expressions;
+    }
+}
@@ -0,0 +1,160 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTextArea;
+import javax.swing.SpinnerNumberModel;
+
+import org.apache.cassandra.client.MultiKeyReader;
+
+/**
+ * Asks for a list of keys, one per line, typed, pasted or loaded from a file.
+ */
+public class MultiKeyDialog extends JDialog {
+    private static final long serialVersionUID = 2206151539413604786L;
+
+    private JTextArea keysText = new JTextArea(20, 40);
+    private JSpinner batchSizeSpinner =
+        new JSpinner(new SpinnerNumberModel(MultiKeyReader.DEFAULT_BATCH_SIZE, 1, 10000, 10));
+    private boolean cancel = true;
+    private List<String> keys;
+
+    public MultiKeyDialog() {
+        JButton load = new JButton("load...");
+        load.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadAction();
+            }
+        });
+
+        JPanel optionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        optionPanel.add(new JLabel("keys per call:"));
+        optionPanel.add(batchSizeSpinner);
+        optionPanel.add(load);
+
+        JButton ok = new JButton("OK");
+        ok.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                enterAction();
+            }
+        });
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setVisible(false);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(ok);
+        buttonPanel.add(cancel);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JLabel("keys, one per line:"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(keysText), BorderLayout.CENTER);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(optionPanel, BorderLayout.CENTER);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+        panel.add(southPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("input keys");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    private void loadAction() {
+        JFileChooser fc = new JFileChooser();
+        if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = fc.getSelectedFile();
+        StringBuilder sb = new StringBuilder();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    sb.append(line).append('\n');
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        keysText.setText(sb.toString());
+        keysText.setCaretPosition(0);
+    }
+
+    private void enterAction() {
+        List<String> l = new ArrayList<String>();
+        for (String line : keysText.getText().split("\n")) {
+            String key = line.trim();
+            if (!key.isEmpty()) {
+                l.add(key);
+            }
+        }
+
+        if (l.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Enter keys.");
+            keysText.requestFocus();
+            return;
+        }
+
+        keys = l;
+
+        setVisible(false);
+        cancel = false;
+    }
+
+    /**
+     * @return the cancel
+     */
+    public boolean isCancel() {
+        return cancel;
+    }
+
+    /**
+     * @return the keys
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the number of keys per multiget_slice call
+     */
+    public int getBatchSize() {
+        return (Integer) batchSizeSpinner.getValue();
+    }
+}
@@ -7,29 +7,39 @@ import java.awt.FlowLayout;
 import java.awt.Paint;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
+import javax.swing.SwingWorker;
 
 import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.NodeStatsCollector;
+import org.apache.cassandra.client.TpstatsMonitor;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.gui.component.panel.RingPanel;
 import org.apache.cassandra.node.NodeInfo;
+import org.apache.cassandra.node.NodeStats;
 import org.apache.cassandra.node.RingNode;
 import org.apache.cassandra.node.Tpstats;
 
 import edu.uci.ics.jung.graph.ArchetypeVertex;
 import edu.uci.ics.jung.graph.Vertex;
-import edu.uci.ics.jung.graph.decorators.StringLabeller;
 import edu.uci.ics.jung.graph.decorators.VertexPaintFunction;
 import edu.uci.ics.jung.graph.decorators.VertexStringer;
 import edu.uci.ics.jung.graph.impl.UndirectedSparseEdge;
@@ -56,12 +66,32 @@ public class RingDialog extends JDialog {
     private static final int NODE_STATUS_DOWN = 2;
     private static final int NODE_STATUS_UNKNOWN = 3;
 
+    /**
+     * Rings with more tokens than this are drawn by a RingPanel
+     * instead of a graph with a vertex per token.
+     */
+    private static final int MAX_GRAPH_TOKENS = 64;
+
     private Client client;
+    private final Map<String, NodeStats> statsMap = new ConcurrentHashMap<String, NodeStats>();
 
-    public RingDialog(Client client) {
+    public RingDialog(Client client) throws IOException, InterruptedException {
         this.client = client;
 
-        JScrollPane scrollPane = new JScrollPane(setupControls());
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        RingNode ringNode;
+        try {
+            ringNode = client.listRing();
+        } finally {
+            setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+        }
+
+        JComponent view = ringNode.getRanges().size() > MAX_GRAPH_TOKENS ?
+                              setupRingPanel(ringNode) :
+                              setupControls(ringNode);
+        collectStats(ringNode.getLiveNodes(), view);
+
+        JScrollPane scrollPane = new JScrollPane(view);
 
         JButton ok = new JButton("OK");
         ok.addActionListener(new ActionListener() {
@@ -88,11 +118,7 @@ public class RingDialog extends JDialog {
     }
 
     @SuppressWarnings("rawtypes")
-    private VisualizationViewer setupControls() {
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        final RingNode ringNode = client.listRing();
-        setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-
+    private VisualizationViewer setupControls(RingNode ringNode) {
         final Map<String, String> rangeMap = ringNode.getRangeMap();
         final List<String> ranges = ringNode.getRanges();
         final List<String> liveNodes = ringNode.getLiveNodes();
@@ -102,8 +128,9 @@ public class RingDialog extends JDialog {
         final Map<Vertex, Integer> statusMap = new HashMap<Vertex, Integer>();
         final Map<Vertex, String> endpointMap = new HashMap<Vertex, String>();
 
+        final Map<Vertex, String> labelMap = new HashMap<Vertex, String>();
+
         final UndirectedSparseGraph graph = new UndirectedSparseGraph();
-        final StringLabeller stringLabeller = StringLabeller.getLabeller(graph);
 
         final Vertex[] vertices = new Vertex[rangeMap.size()];
 
@@ -112,20 +139,13 @@ public class RingDialog extends JDialog {
         for (String range : ranges) {
             String primaryEndpoint = rangeMap.get(range);
             String load = loadMap.containsKey(primaryEndpoint) ? loadMap.get(primaryEndpoint) : "?";
-            String label = "<html>" +
-                           "Address: " + primaryEndpoint + "<br/>" +
+            String label = "Address: " + primaryEndpoint + "<br/>" +
                            "Load: " + load + "<br/>" +
-                           "Range: " + range.toString() +
-                           "</html>";
+                           "Range: " + range.toString();
 
             Vertex v = graph.addVertex(new UndirectedSparseVertex());
             vertices[count] = v;
-            try {
-                stringLabeller.setLabel(v, label);
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-                e.printStackTrace();
-            }
+            labelMap.put(v, label);
 
             statusMap.put(v, liveNodes.contains(primaryEndpoint) ? NODE_STATUS_UP
                                     : deadNodes.contains(primaryEndpoint) ? NODE_STATUS_DOWN
@@ -152,7 +172,21 @@ public class RingDialog extends JDialog {
         renderer.setVertexStringer(new VertexStringer() {
             @Override
             public String getLabel(ArchetypeVertex v) {
-                return stringLabeller.getLabel(v);
+                NodeStats stats = statsMap.get(endpointMap.get(v));
+                if (stats == null) {
+                    return "<html>" + labelMap.get(v) + "</html>";
+                } else if (stats.getError() != null) {
+                    return "<html>" + labelMap.get(v) + "<br/>" +
+                           "Stats: " + stats.getError() +
+                           "</html>";
+                }
+
+                NodeInfo ni = stats.getNodeInfo();
+                return "<html>" + labelMap.get(v) + "<br/>" +
+                       String.format("Heap: %.1f / %.1f MB", ni.getMemUsed(), ni.getMemMax()) + "<br/>" +
+                       "Active: " + stats.getActiveTasks() + "<br/>" +
+                       "Pending: " + stats.getPendingTasks() +
+                       "</html>";
             }
         });
 
@@ -202,51 +236,10 @@ public class RingDialog extends JDialog {
                 final Vertex vertex = pickSupport.getVertex(ivp.getX(), ivp.getY());
 
                 if(pickSupport != null) {
-                    JPopupMenu popup = new JPopupMenu();
-                    if(vertex != null) {
-                        if (statusMap.get(vertex) == NODE_STATUS_UP) {
-                            popup.add(new AbstractAction("info") {
-                                private static final long serialVersionUID = -6992429747383272830L;
-
-                                @Override
-                                public void actionPerformed(ActionEvent ae) {
-                                    try {
-                                        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                                        NodeInfo ni = client.getNodeInfo(endpointMap.get(vertex));
-                                        setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-
-                                        NodeInfoDialog nid = new NodeInfoDialog(ni);
-                                        nid.setVisible(true);
-                                    } catch (Exception e) {
-                                        JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-                                        e.printStackTrace();
-                                    }
-                                }
-                            });
-
-                            popup.add(new AbstractAction("tpstats") {
-                                private static final long serialVersionUID = 6511117264115071716L;
-
-                                @Override
-                                public void actionPerformed(ActionEvent ae) {
-                                    try {
-                                        String endpoint = endpointMap.get(vertex);
-
-                                        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                                        List<Tpstats> l = client.getTpstats(endpoint);
-                                        setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-
-                                        TpstatsDialog td = new TpstatsDialog(endpoint, l);
-                                        td.setVisible(true);
-                                    } catch (Exception e) {
-                                        JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-                                        e.printStackTrace();
-                                    }
-                                }
-                            });
-                        }
-                    }
-
+                    JPopupMenu popup = vertex != null ?
+                                           createNodePopup(endpointMap.get(vertex),
+                                                           statusMap.get(vertex) == NODE_STATUS_UP) :
+                                           createRingPopup(liveNodes);
                     if(popup.getComponentCount() > 0) {
                         popup.show(vv, e.getX(), e.getY());
                     }
@@ -260,4 +253,134 @@ public class RingDialog extends JDialog {
 
         return viewer;
     }
+
+    private RingPanel setupRingPanel(RingNode ringNode) {
+        final List<String> liveNodes = ringNode.getLiveNodes();
+        final RingPanel ringPanel = new RingPanel(ringNode, statsMap);
+        ringPanel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showPopup(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showPopup(e);
+            }
+
+            private void showPopup(MouseEvent e) {
+                if (!e.isPopupTrigger()) {
+                    return;
+                }
+
+                String endpoint = ringPanel.getEndpointAt(e.getPoint());
+                JPopupMenu popup = endpoint != null ?
+                                       createNodePopup(endpoint, liveNodes.contains(endpoint)) :
+                                       createRingPopup(liveNodes);
+                if (popup.getComponentCount() > 0) {
+                    popup.show(ringPanel, e.getX(), e.getY());
+                }
+            }
+        });
+
+        return ringPanel;
+    }
+
+    private JPopupMenu createNodePopup(final String endpoint, boolean up) {
+        JPopupMenu popup = new JPopupMenu();
+        if (!up) {
+            return popup;
+        }
+
+        popup.add(new AbstractAction("info") {
+            private static final long serialVersionUID = -6992429747383272830L;
+
+            @Override
+            public void actionPerformed(ActionEvent ae) {
+                try {
+                    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+                    NodeInfo ni = client.getNodeInfo(endpoint);
+                    setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+
+                    NodeInfoDialog nid = new NodeInfoDialog(ni);
+                    nid.setVisible(true);
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        });
+
+        popup.add(new AbstractAction("tpstats") {
+            private static final long serialVersionUID = 6511117264115071716L;
+
+            @Override
+            public void actionPerformed(ActionEvent ae) {
+                try {
+                    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+                    List<Tpstats> l = client.getTpstats(endpoint);
+                    setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+
+                    TpstatsDialog td = new TpstatsDialog(endpoint, l);
+                    td.setVisible(true);
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        });
+
+        popup.add(new AbstractAction("monitor tpstats") {
+            private static final long serialVersionUID = -1383542779403683766L;
+
+            @Override
+            public void actionPerformed(ActionEvent ae) {
+                List<String> endpoints = Collections.singletonList(endpoint);
+                new TpstatsMonitorDialog(new TpstatsMonitor(client, endpoints)).monitor();
+            }
+        });
+
+        return popup;
+    }
+
+    private JPopupMenu createRingPopup(final List<String> liveNodes) {
+        JPopupMenu popup = new JPopupMenu();
+        if (!liveNodes.isEmpty()) {
+            popup.add(new AbstractAction("monitor tpstats of all nodes") {
+                private static final long serialVersionUID = 4923702563407796126L;
+
+                @Override
+                public void actionPerformed(ActionEvent ae) {
+                    new TpstatsMonitorDialog(new TpstatsMonitor(client, liveNodes)).monitor();
+                }
+            });
+        }
+
+        return popup;
+    }
+
+    /**
+     * Query every live node at once and repaint view with the statistics,
+     * the ring is shown meanwhile.
+     */
+    private void collectStats(final List<String> liveNodes, final JComponent view) {
+        new SwingWorker<Map<String, NodeStats>, Void>() {
+            @Override
+            protected Map<String, NodeStats> doInBackground() throws Exception {
+                return new NodeStatsCollector(client).collect(liveNodes);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    statsMap.putAll(get());
+                    view.repaint();
+                } catch (InterruptedException e) {
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
+                }
+            }
+        }.execute();
+    }
 }
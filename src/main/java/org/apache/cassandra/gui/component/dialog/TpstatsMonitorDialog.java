@@ -0,0 +1,297 @@
+package org.apache.cassandra.gui.component.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableRowSorter;
+
+import org.apache.cassandra.client.TpstatsMonitor;
+import org.apache.cassandra.node.SampleBuffer;
+import org.apache.cassandra.node.TpstatsHistory;
+
+/**
+ * Shows the thread pool statistics of one or several nodes as they change,
+ * with a sparkline of the samples kept for each metric.
+ */
+public class TpstatsMonitorDialog extends JDialog {
+    private static final long serialVersionUID = 1893402466851267620L;
+
+    private static final String[] columns = {"Endpoint", "Pool Name",
+                                             "Active", "Pending", "Completed/s",
+                                             "Active History", "Pending History", "Completed/s History"};
+    private static final int COLUMN_FIRST_HISTORY = 5;
+    private static final int REFRESH_INTERVAL = 1000;
+    private static final int SPARKLINE_WIDTH = 150;
+
+    private static class Row {
+        private TpstatsHistory history;
+        private TpstatsHistory.PoolHistory pool;
+
+        private Row(TpstatsHistory history, TpstatsHistory.PoolHistory pool) {
+            this.history = history;
+            this.pool = pool;
+        }
+    }
+
+    private class TpstatsTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = -2457710957406498934L;
+
+        private List<Row> rows = new ArrayList<Row>();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+            case 0:
+            case 1:
+                return String.class;
+            case 2:
+            case 3:
+            case 4:
+                return Long.class;
+            }
+
+            return SampleBuffer.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Row r = rows.get(row);
+            switch (column) {
+            case 0:
+                return r.history.getEndpoint();
+            case 1:
+                return r.pool.getPoolName();
+            case 2:
+                return Math.round(r.pool.getActive().last());
+            case 3:
+                return Math.round(r.pool.getPending().last());
+            case 4:
+                return Math.round(r.pool.getCompletedRate().last());
+            case 5:
+                return r.pool.getActive();
+            case 6:
+                return r.pool.getPending();
+            }
+
+            return r.pool.getCompletedRate();
+        }
+
+        private void refresh() {
+            List<Row> l = new ArrayList<Row>();
+            for (TpstatsHistory h : monitor.getHistories()) {
+                for (TpstatsHistory.PoolHistory p : h.getPools()) {
+                    l.add(new Row(h, p));
+                }
+            }
+
+            if (l.size() == rows.size()) {
+                rows = l;
+                fireTableRowsUpdated(0, rows.size() - 1);
+            } else {
+                rows = l;
+                fireTableDataChanged();
+            }
+        }
+    }
+
+    /**
+     * Draws the samples of a SampleBuffer as a line, scaled to their maximum.
+     */
+    private static class Sparkline extends JComponent implements TableCellRenderer {
+        private static final long serialVersionUID = -4306529185728151383L;
+
+        private double[] samples = new double[0];
+        private int capacity = 1;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table,
+                                                       Object value,
+                                                       boolean isSelected,
+                                                       boolean hasFocus,
+                                                       int row,
+                                                       int column) {
+            SampleBuffer buffer = (SampleBuffer) value;
+            samples = buffer.toArray();
+            capacity = buffer.capacity();
+            setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+            setForeground(isSelected ? table.getSelectionForeground() : Color.BLUE);
+
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int w = getWidth();
+            int h = getHeight() - 2;
+            g.setColor(getBackground());
+            g.fillRect(0, 0, w, getHeight());
+            if (samples.length < 2) {
+                return;
+            }
+
+            double max = 0;
+            for (double d : samples) {
+                max = Math.max(max, d);
+            }
+
+            // the newest sample is on the right edge, the line grows to the left
+            g.setColor(getForeground());
+            int offset = capacity - samples.length;
+            int px = 0;
+            int py = 0;
+            for (int i = 0; i < samples.length; i++) {
+                int x = (int) ((long) (offset + i) * (w - 1) / Math.max(1, capacity - 1));
+                int y = 1 + h - (max == 0 ? 0 : (int) (samples[i] * h / max));
+                if (i > 0) {
+                    g.drawLine(px, py, x, y);
+                }
+                px = x;
+                py = y;
+            }
+        }
+    }
+
+    private TpstatsMonitor monitor;
+    private TpstatsTableModel tableModel = new TpstatsTableModel();
+    private JLabel statusLabel = new JLabel(" ");
+    private Timer timer;
+
+    public TpstatsMonitorDialog(final TpstatsMonitor monitor) {
+        this.monitor = monitor;
+
+        final JSpinner intervalSpinner =
+            new JSpinner(new SpinnerNumberModel((int) (TpstatsMonitor.DEFAULT_INTERVAL / 1000), 1, 60, 1));
+        intervalSpinner.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                monitor.start((Integer) intervalSpinner.getValue() * 1000L);
+            }
+        });
+
+        JPanel intervalPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        intervalPanel.add(new JLabel("interval (sec):"));
+        intervalPanel.add(intervalSpinner);
+
+        JTable table = new JTable(tableModel);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        TableRowSorter<TpstatsTableModel> sorter = new TableRowSorter<TpstatsTableModel>(tableModel);
+        for (int i = COLUMN_FIRST_HISTORY; i < columns.length; i++) {
+            sorter.setSortable(i, false);
+            table.getColumnModel().getColumn(i).setPreferredWidth(SPARKLINE_WIDTH);
+        }
+        table.setRowSorter(sorter);
+        table.setDefaultRenderer(SampleBuffer.class, new Sparkline());
+
+        JScrollPane scrollPane = new JScrollPane(table);
+
+        timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                tableModel.refresh();
+                updateStatus();
+            }
+        });
+
+        JButton ok = new JButton("OK");
+        ok.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stop();
+                setVisible(false);
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                stop();
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(ok);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(statusLabel, BorderLayout.CENTER);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(intervalPanel, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(southPanel, BorderLayout.SOUTH);
+
+        add(panel);
+
+        pack();
+        setModalityType(ModalityType.DOCUMENT_MODAL);
+        setTitle("Tpstats monitor");
+        setLocationRelativeTo(null);
+        setModal(true);
+    }
+
+    /**
+     * Start polling and show the dialog until it is closed.
+     */
+    public void monitor() {
+        monitor.start(TpstatsMonitor.DEFAULT_INTERVAL);
+        timer.start();
+        setVisible(true);
+    }
+
+    private void stop() {
+        timer.stop();
+        monitor.stop();
+    }
+
+    private void updateStatus() {
+        StringBuilder sb = new StringBuilder();
+        for (TpstatsHistory h : monitor.getHistories()) {
+            if (h.getLastError() != null) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(h.getEndpoint()).append(": ").append(h.getLastError().getMessage());
+            }
+        }
+        statusLabel.setText(sb.length() == 0 ? " " : "error: " + sb);
+    }
+}
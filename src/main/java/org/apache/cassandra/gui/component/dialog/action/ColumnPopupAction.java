@@ -1,18 +1,18 @@
 package org.apache.cassandra.gui.component.dialog.action;
 
 import java.awt.event.ActionEvent;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.JOptionPane;
-import javax.swing.tree.DefaultMutableTreeNode;
 
 import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.RowCounter;
 import org.apache.cassandra.gui.component.dialog.CellPropertiesDialog;
+import org.apache.cassandra.gui.component.dialog.CountDialog;
 import org.apache.cassandra.node.TreeNode;
 import org.apache.cassandra.unit.Cell;
 import org.apache.cassandra.unit.Key;
@@ -22,10 +22,9 @@ import org.apache.cassandra.unit.Unit;
 public class ColumnPopupAction extends AbstractAction {
     private static final long serialVersionUID = -4419251468566465640L;
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-
     public static final int OPERATION_PROPERTIES = 1;
     public static final int OPERATION_REMOVE = 2;
+    public static final int OPERATION_COUNT = 3;
 
     private int operation;
     private boolean isSuperColumn;
@@ -78,6 +77,18 @@ public class ColumnPopupAction extends AbstractAction {
                 remove();
             }
 
+            break;
+        case OPERATION_COUNT:
+            RowCounter counter = client.getRowCounter(client.getKeyspace(),
+                                                      client.getColumnFamily(),
+                                                      RowCounter.DEFAULT_BATCH_SIZE);
+            if (u instanceof Key) {
+                new CountDialog(counter, ((Key) u).getName(), null).count();
+            } else if (u instanceof SColumn) {
+                SColumn s = (SColumn) u;
+                new CountDialog(counter, ((Key) s.getParent()).getName(), s.getName()).count();
+            }
+
             break;
         }
     }
@@ -96,13 +107,9 @@ public class ColumnPopupAction extends AbstractAction {
         String name = cpdlg.getName();
         String value = cpdlg.getValue();
 
-        boolean keyFound = false;
-        boolean superColumnFound = false;
-        boolean cellFound = false;
-
-        Key k =  null;
+        Key k = null;
         try {
-            k = (Key) treeNode.getKeyMap().get(key);
+            k = treeNode.getTreeModel().getKey(key);
             if (k == null) {
                 Map<String, Key> m = client.getKey(client.getKeyspace(),
                                                    client.getColumnFamily(),
@@ -111,11 +118,9 @@ public class ColumnPopupAction extends AbstractAction {
                                                    key);
                 k = m.get(key);
                 if (k == null) {
-                    k = new Key(key, new HashMap<String, SColumn>(), new HashMap<String, Cell>());
+                    k = new Key(key, new TreeMap<String, SColumn>(), new TreeMap<String, Cell>());
                     k.setSuperColumn(isSuperColumn);
                 }
-            } else {
-                keyFound = true;
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
@@ -123,27 +128,12 @@ public class ColumnPopupAction extends AbstractAction {
             return;
         }
 
-        SColumn s = null;
-        DefaultMutableTreeNode sn = null;
-        if (isSuperColumn) {
-            s = k.getSColumns().get(superColumn);
-            if (s == null) {
-                s = new SColumn(k, superColumn, new HashMap<String, Cell>());
-                sn = new DefaultMutableTreeNode(s.getName());
-                s.setTreeNode(sn);
-                s.setParent(k);
-            } else {
-                sn = s.getTreeNode();
-                superColumnFound = true;
-            }
-        }
-
         Date d = null;
         try {
             d = client.insertColumn(client.getKeyspace(),
                                     client.getColumnFamily(),
                                     key,
-                                    s == null ? null : superColumn,
+                                    isSuperColumn ? superColumn : null,
                                     name,
                                     value);
         } catch (Exception e) {
@@ -152,76 +142,9 @@ public class ColumnPopupAction extends AbstractAction {
             return;
         }
 
-        DefaultMutableTreeNode kn = k.getTreeNode();
-        if (kn == null) {
-            kn = new DefaultMutableTreeNode(key);
-            k.setTreeNode(kn);
-        }
-
-        if (isSuperColumn) {
-            Cell c = s.getCells().get(name);
-            DefaultMutableTreeNode cn = new DefaultMutableTreeNode(name + "=" + value + ", " +
-                                                                   DATE_FORMAT.format(d));
-            if (c == null) {
-                c = new Cell(s, name, value, d);
-                c.setTreeNode(cn);
-                if (isSuperColumn) {
-                    c.setParent(s);
-                } else {
-                    c.setParent(k);
-                }
-            } else {
-                c.getTreeNode().setUserObject(cn);
-                cellFound = true;
-            }
-            s.getCells().put(name, c);
-            k.getSColumns().put(superColumn, s);
-
-            if (!cellFound) {
-                sn.add(cn);
-            }
-
-            if (!superColumnFound) {
-                kn.add(sn);
-            }
-
-            if (!keyFound) {
-                treeNode.getNode().add(kn);
-            }
-
-            treeNode.getUnitMap().put(kn, k);
-            treeNode.getUnitMap().put(sn, s);
-            treeNode.getUnitMap().put(cn, c);
-        } else {
-            Cell c = k.getCells().get(name);
-            DefaultMutableTreeNode cn = new DefaultMutableTreeNode(name + "=" + value + ", " +
-                                                                   DATE_FORMAT.format(d));
-            if (c == null) {
-                c = new Cell(s, name, value, d);
-                c.setTreeNode(cn);
-                c.setParent(k);
-            } else {
-                c.getTreeNode().setUserObject(cn);
-                cellFound = true;
-            }
-            k.getCells().put(name, c);
-
-            if (!cellFound) {
-                kn.add(cn);
-            }
-
-            if (!keyFound) {
-                treeNode.getNode().add(kn);
-            }
-
-            treeNode.getUnitMap().put(kn, k);
-            treeNode.getUnitMap().put(cn, c);
-        }
-
-        treeNode.getKeyMap().put(key, k);
-
-        treeNode.getTreeModel().nodeChanged(treeNode.getNode());
-        treeNode.getTreeModel().reload(treeNode.getNode());
+        treeNode.getTreeModel().putCell(k,
+                                        isSuperColumn ? superColumn : null,
+                                        new Cell(k, name, value, d));
     }
 
     private void insertCell() {
@@ -235,17 +158,14 @@ public class ColumnPopupAction extends AbstractAction {
             return;
         }
 
-        SColumn s = null;
-        if (isSuperColumn) {
-            s = new SColumn(k, cpdlg.getSuperColumn(), new HashMap<String, Cell>());
-        }
+        String superColumn = isSuperColumn ? cpdlg.getSuperColumn() : null;
 
         Date d = null;
         try {
             d = client.insertColumn(client.getKeyspace(),
                                     client.getColumnFamily(),
                                     k.getName(),
-                                    s == null ? null : s.getName(),
+                                    superColumn,
                                     cpdlg.getName(),
                                     cpdlg.getValue());
         } catch (Exception e) {
@@ -253,29 +173,7 @@ public class ColumnPopupAction extends AbstractAction {
             e.printStackTrace();
         }
 
-        if (isSuperColumn) {
-            Cell c = new Cell(s, cpdlg.getName(), cpdlg.getValue(), d);
-            DefaultMutableTreeNode cn = new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " +
-                                                                   DATE_FORMAT.format(c.getDate()));
-            s.getCells().put(c.getName(), c);
-
-            DefaultMutableTreeNode sn = new DefaultMutableTreeNode(s.getName());
-            sn.add(cn);
-            treeNode.getNode().add(sn);
-
-            treeNode.getUnitMap().put(sn, s);
-            treeNode.getUnitMap().put(cn, c);
-        } else {
-            Cell c = new Cell(k, cpdlg.getName(), cpdlg.getValue(), d);
-            DefaultMutableTreeNode cn = new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " +
-                                                                   DATE_FORMAT.format(c.getDate()));
-            k.getCells().put(c.getName(), c);
-            treeNode.getNode().add(cn);
-
-            treeNode.getUnitMap().put(cn, c);
-        }
-
-        treeNode.getTreeModel().reload(treeNode.getNode());
+        treeNode.getTreeModel().putCell(k, superColumn, new Cell(k, cpdlg.getName(), cpdlg.getValue(), d));
     }
 
     private void insertSuperColumnCell() {
@@ -301,14 +199,7 @@ public class ColumnPopupAction extends AbstractAction {
             e.printStackTrace();
         }
 
-        Cell c = new Cell(s, cpdlg.getName(), cpdlg.getValue(), d);
-        DefaultMutableTreeNode cn = new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " +
-                                                               DATE_FORMAT.format(c.getDate()));
-        s.getCells().put(c.getName(), c);
-        treeNode.getUnitMap().put(cn, c);
-
-        treeNode.getNode().add(cn);
-        treeNode.getTreeModel().reload(treeNode.getNode());
+        treeNode.getTreeModel().putCell(k, s.getName(), new Cell(s, cpdlg.getName(), cpdlg.getValue(), d));
     }
 
     private void updateCell() {
@@ -349,10 +240,7 @@ public class ColumnPopupAction extends AbstractAction {
         c.setValue(cpdlg.getValue());
         c.setDate(d);
 
-        treeNode.getNode().setUserObject(
-                            new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " +
-                                                       DATE_FORMAT.format(c.getDate())));
-        treeNode.getTreeModel().nodeChanged(treeNode.getNode());
+        treeNode.getTreeModel().nodeChanged(c);
     }
 
     private void remove() {
@@ -363,23 +251,10 @@ public class ColumnPopupAction extends AbstractAction {
                                  client.getColumnFamily(),
                                  k.getName());
 
-                if (isSuperColumn) {
-                    for (SColumn s : k.getSColumns().values()) {
-                        treeNode.getUnitMap().remove(s.getTreeNode());
-                        for (Cell c : s.getCells().values()) {
-                            treeNode.getUnitMap().remove(c.getTreeNode());
-                        }
-                    }
-                } else {
-                    for (Cell c : k.getCells().values()) {
-                        treeNode.getUnitMap().remove(c.getTreeNode());
-                    }
-                }
-
                 k.getCells().clear();
                 k.getSColumns().clear();
-                treeNode.getNode().removeAllChildren();
-                treeNode.getTreeModel().reload(treeNode.getNode());
+                k.setTruncated(false);
+                treeNode.getTreeModel().reload(k);
             } else if (treeNode.getUnit() instanceof SColumn) {
                 SColumn s = (SColumn) treeNode.getUnit();
                 Key k = (Key) s.getParent();
@@ -388,15 +263,9 @@ public class ColumnPopupAction extends AbstractAction {
                                          k.getName(),
                                          s.getName());
                 k.getSColumns().remove(s.getName());
-
-                for (Cell c : s.getCells().values()) {
-                    treeNode.getUnitMap().remove(c.getTreeNode());
-                }
-
-                removeNode((DefaultMutableTreeNode) treeNode.getNode().getParent(), treeNode.getNode());
+                treeNode.getTreeModel().reload(k);
             } else {
                 Cell c = (Cell) treeNode.getUnit();
-                treeNode.getUnitMap().remove(c.getTreeNode());
                 Unit parent = c.getParent();
                 if (parent instanceof Key) {
                     Key k = (Key) parent;
@@ -405,8 +274,7 @@ public class ColumnPopupAction extends AbstractAction {
                                         k.getName(),
                                         c.getName());
                     k.getCells().remove(c.getName());
-
-                    removeNode((DefaultMutableTreeNode) treeNode.getNode().getParent(), treeNode.getNode());
+                    treeNode.getTreeModel().reload(k);
                 } else if (parent instanceof SColumn) {
                     SColumn s = (SColumn) parent;
                     Key k = (Key) s.getParent();
@@ -417,13 +285,11 @@ public class ColumnPopupAction extends AbstractAction {
                                         c.getName());
                     s.getCells().remove(c.getName());
 
-                    DefaultMutableTreeNode parentNode =
-                        (DefaultMutableTreeNode) treeNode.getNode().getParent();
-                    removeNode(parentNode, treeNode.getNode());
-
                     if (s.getCells().isEmpty()) {
                         k.getSColumns().remove(s.getName());
-                        removeNode((DefaultMutableTreeNode) parentNode.getParent(), parentNode);
+                        treeNode.getTreeModel().reload(k);
+                    } else {
+                        treeNode.getTreeModel().reload(s);
                     }
                 }
             }
@@ -433,14 +299,6 @@ public class ColumnPopupAction extends AbstractAction {
         }
     }
 
-    private void removeNode(DefaultMutableTreeNode parentNode,
-                            DefaultMutableTreeNode node) {
-        if (parentNode != null && node != null) {
-            node.removeFromParent();
-            treeNode.getTreeModel().reload(parentNode);
-        }
-    }
-
     private String getName() {
         if (treeNode.getUnit() instanceof Key) {
             return ((Key) treeNode.getUnit()).getName();
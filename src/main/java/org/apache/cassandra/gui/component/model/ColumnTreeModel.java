@@ -0,0 +1,379 @@
+package org.apache.cassandra.gui.component.model;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+import org.apache.cassandra.unit.Cell;
+import org.apache.cassandra.unit.Key;
+import org.apache.cassandra.unit.SColumn;
+import org.apache.cassandra.unit.Unit;
+
+/**
+ * Tree model backed directly by the Key, SColumn and Cell units.
+ * The units are the tree nodes; the child list of a node is only
+ * built when the tree asks for it, i.e. when the node is expanded,
+ * and labels are only formatted when a row is painted.
+ */
+public class ColumnTreeModel implements TreeModel {
+    /**
+     * Placeholder shown as the last child of a key whose columns
+     * have not all been fetched.
+     */
+    public static class MoreColumns {
+        private final Key key;
+
+        private MoreColumns(Key key) {
+            this.key = key;
+        }
+
+        /**
+         * @return the key
+         */
+        public Key getKey() {
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return MORE_COLUMNS;
+        }
+    }
+
+    private static final String MORE_COLUMNS = "more columns...";
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final EventListenerList listenerList = new EventListenerList();
+
+    private final String root;
+    private final List<Key> keys = new ArrayList<Key>();
+    private final Map<String, Key> keyMap = new HashMap<String, Key>();
+    private final Map<Key, MoreColumns> moreMap = new HashMap<Key, MoreColumns>();
+    private final Map<Object, List<Object>> childrenMap = new HashMap<Object, List<Object>>();
+
+    public ColumnTreeModel(String columnFamily) {
+        this.root = columnFamily;
+    }
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        if (parent == root) {
+            return keys.get(index);
+        }
+
+        return getChildren(parent).get(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        if (parent == root) {
+            return keys.size();
+        }
+
+        return getChildren(parent).size();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        if (node == root) {
+            return false;
+        } else if (node instanceof Key) {
+            Key k = (Key) node;
+            return k.getCells().isEmpty() && k.getSColumns().isEmpty() && !k.isTruncated();
+        } else if (node instanceof SColumn) {
+            return ((SColumn) node).getCells().isEmpty();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        } else if (parent == root) {
+            return keys.indexOf(child);
+        }
+
+        return getChildren(parent).indexOf(child);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listenerList.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listenerList.remove(TreeModelListener.class, l);
+    }
+
+    /**
+     * @return the text shown for a node of this model
+     */
+    public String getLabel(Object node) {
+        if (node instanceof Key) {
+            return ((Key) node).getName();
+        } else if (node instanceof SColumn) {
+            return ((SColumn) node).getName();
+        } else if (node instanceof Cell) {
+            Cell c = (Cell) node;
+            return c.getName() + "=" + c.getValue() + ", " + dateFormat.format(c.getDate());
+        }
+
+        return String.valueOf(node);
+    }
+
+    /**
+     * Release the child list of a collapsed node, it is built
+     * again the next time the node is expanded.
+     */
+    public void collapsed(Object node) {
+        if (node != root) {
+            childrenMap.remove(node);
+        }
+    }
+
+    public Key getKey(String name) {
+        return keyMap.get(name);
+    }
+
+    public boolean isMoreColumns(Object node) {
+        return node instanceof MoreColumns;
+    }
+
+    /**
+     * Append keys under the root.
+     */
+    public void addKeys(List<Key> l) {
+        int index = keys.size();
+        for (Key k : l) {
+            keys.add(k);
+            keyMap.put(k.getName(), k);
+        }
+
+        fireInserted(new TreePath(root), index, keys.size());
+    }
+
+    /**
+     * Append the next slice of columns of a truncated key.
+     *
+     * @param k the key shown in the tree
+     * @param more the next slice of k, null if there were no more columns
+     */
+    public void addColumns(Key k, Key more) {
+        MoreColumns placeholder = moreMap.remove(k);
+        List<Object> children = childrenMap.get(k);
+        int index = children == null ? 0 : children.size();
+        if (placeholder != null && children != null) {
+            index--;
+            children.remove(index);
+            fireRemoved(getPath(k), index, placeholder);
+        }
+
+        if (more == null) {
+            k.setTruncated(false);
+        } else {
+            for (SColumn sc : more.getSColumns().values()) {
+                sc.setParent(k);
+                k.getSColumns().put(sc.getName(), sc);
+                if (children != null) {
+                    children.add(sc);
+                }
+            }
+            for (Cell c : more.getCells().values()) {
+                c.setParent(k);
+                k.getCells().put(c.getName(), c);
+                if (children != null) {
+                    children.add(c);
+                }
+            }
+            k.setTruncated(more.isTruncated());
+            k.setLastColumnName(more.getLastColumnName());
+        }
+
+        if (children != null) {
+            if (k.isTruncated()) {
+                children.add(getMoreColumns(k));
+            }
+            fireInserted(getPath(k), index, children.size());
+        } else {
+            nodeChanged(k);
+        }
+    }
+
+    /**
+     * Add a cell to the tree or replace the cell of the same name,
+     * adding its key and super column when they are not shown yet.
+     *
+     * @param k
+     * @param superColumn name of the super column, null for a standard column family
+     * @param c
+     */
+    public void putCell(Key k, String superColumn, Cell c) {
+        if (superColumn != null) {
+            SColumn s = k.getSColumns().get(superColumn);
+            if (s == null) {
+                s = new SColumn(k, superColumn, new TreeMap<String, Cell>());
+                k.getSColumns().put(superColumn, s);
+            }
+
+            c.setParent(s);
+            s.getCells().put(c.getName(), c);
+        } else {
+            c.setParent(k);
+            k.getCells().put(c.getName(), c);
+        }
+
+        if (keyMap.get(k.getName()) == k) {
+            reload(k);
+        } else {
+            List<Key> l = new ArrayList<Key>();
+            l.add(k);
+            addKeys(l);
+        }
+    }
+
+    /**
+     * Notify the tree that the label of a node has changed.
+     */
+    public void nodeChanged(Object node) {
+        TreePath path = getPath(node);
+        TreePath parentPath = path.getParentPath();
+        if (parentPath == null) {
+            fireChanged(new TreeModelEvent(this, path));
+            return;
+        }
+
+        int index = getIndexOfChild(parentPath.getLastPathComponent(), node);
+        if (index >= 0) {
+            fireChanged(new TreeModelEvent(this, parentPath, new int[] {index}, new Object[] {node}));
+        }
+    }
+
+    /**
+     * Notify the tree that the children of a node have changed.
+     */
+    public void reload(Object node) {
+        childrenMap.remove(node);
+        if (node instanceof Key) {
+            Key k = (Key) node;
+            for (SColumn s : k.getSColumns().values()) {
+                childrenMap.remove(s);
+            }
+        }
+
+        TreeModelEvent e = new TreeModelEvent(this, getPath(node));
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == TreeModelListener.class) {
+                ((TreeModelListener) listeners[i + 1]).treeStructureChanged(e);
+            }
+        }
+    }
+
+    public TreePath getPath(Object node) {
+        if (node == root) {
+            return new TreePath(root);
+        } else if (node instanceof Key) {
+            return new TreePath(new Object[] {root, node});
+        } else if (node instanceof MoreColumns) {
+            Key k = ((MoreColumns) node).getKey();
+            return new TreePath(new Object[] {root, k, node});
+        }
+
+        Unit parent = node instanceof Cell ? ((Cell) node).getParent() : ((SColumn) node).getParent();
+        return getPath(parent).pathByAddingChild(node);
+    }
+
+    private List<Object> getChildren(Object parent) {
+        List<Object> children = childrenMap.get(parent);
+        if (children != null) {
+            return children;
+        }
+
+        children = new ArrayList<Object>();
+        if (parent instanceof Key) {
+            Key k = (Key) parent;
+            children.addAll(k.getSColumns().values());
+            children.addAll(k.getCells().values());
+            if (k.isTruncated()) {
+                children.add(getMoreColumns(k));
+            }
+        } else if (parent instanceof SColumn) {
+            children.addAll(((SColumn) parent).getCells().values());
+        }
+        childrenMap.put(parent, children);
+
+        return children;
+    }
+
+    private MoreColumns getMoreColumns(Key k) {
+        MoreColumns m = moreMap.get(k);
+        if (m == null) {
+            m = new MoreColumns(k);
+            moreMap.put(k, m);
+        }
+
+        return m;
+    }
+
+    private void fireInserted(TreePath parentPath, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+
+        int[] indices = new int[to - from];
+        Object[] children = new Object[indices.length];
+        Object parent = parentPath.getLastPathComponent();
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = from + i;
+            children[i] = getChild(parent, from + i);
+        }
+
+        TreeModelEvent e = new TreeModelEvent(this, parentPath, indices, children);
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == TreeModelListener.class) {
+                ((TreeModelListener) listeners[i + 1]).treeNodesInserted(e);
+            }
+        }
+    }
+
+    private void fireRemoved(TreePath parentPath, int index, Object child) {
+        TreeModelEvent e = new TreeModelEvent(this, parentPath, new int[] {index}, new Object[] {child});
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == TreeModelListener.class) {
+                ((TreeModelListener) listeners[i + 1]).treeNodesRemoved(e);
+            }
+        }
+    }
+
+    private void fireChanged(TreeModelEvent e) {
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == TreeModelListener.class) {
+                ((TreeModelListener) listeners[i + 1]).treeNodesChanged(e);
+            }
+        }
+    }
+}
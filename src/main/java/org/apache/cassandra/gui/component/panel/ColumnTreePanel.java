@@ -1,32 +1,53 @@
 package org.apache.cassandra.gui.component.panel;
 
-import java.awt.Cursor;
+import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.text.SimpleDateFormat;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTree;
 import javax.swing.SwingUtilities;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.TreePath;
 
 
 import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.KeyRangePager;
+import org.apache.cassandra.client.MultiKeyReader;
+import org.apache.cassandra.client.ScanCallback;
 import org.apache.cassandra.gui.component.dialog.action.ColumnPopupAction;
+import org.apache.cassandra.gui.component.model.ColumnTreeModel;
+import org.apache.cassandra.gui.component.model.ColumnTreeModel.MoreColumns;
 import org.apache.cassandra.gui.control.callback.RepaintCallback;
 import org.apache.cassandra.node.TreeNode;
 import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.IndexExpression;
 import org.apache.cassandra.unit.Cell;
 import org.apache.cassandra.unit.Key;
-import org.apache.cassandra.unit.SColumn;
 import org.apache.cassandra.unit.Unit;
 
 public class ColumnTreePanel extends JPanel {
@@ -42,15 +63,13 @@ public class ColumnTreePanel extends JPanel {
                 }
 
                 tree.setSelectionPath(path);
-                DefaultMutableTreeNode node =
-                    (DefaultMutableTreeNode) tree.getLastSelectedPathComponent();
-                Unit u = unitMap.get(node);
-                TreeNode treeNode = new TreeNode(client,
-                                                 node,
-                                                 treeModel,
-                                                 u,
-                                                 unitMap,
-                                                 keyMap);
+                Object node = tree.getLastSelectedPathComponent();
+                if (treeModel.isMoreColumns(node)) {
+                    return;
+                }
+
+                Unit u = node instanceof Unit ? (Unit) node : null;
+                TreeNode treeNode = new TreeNode(client, treeModel, u);
                 JPopupMenu popup = new JPopupMenu();
                 if (u == null) {
                     popup.add(new ColumnPopupAction("add",
@@ -68,6 +87,10 @@ public class ColumnTreePanel extends JPanel {
                                                         ColumnPopupAction.OPERATION_PROPERTIES,
                                                         superColumn,
                                                         treeNode));
+                        popup.add(new ColumnPopupAction("count columns",
+                                                        ColumnPopupAction.OPERATION_COUNT,
+                                                        superColumn,
+                                                        treeNode));
                     }
                     popup.add(new ColumnPopupAction("remove",
                                                     ColumnPopupAction.OPERATION_REMOVE,
@@ -79,24 +102,182 @@ public class ColumnTreePanel extends JPanel {
         }
     }
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private class MoreColumnsSelection implements TreeSelectionListener {
+        @Override
+        public void valueChanged(TreeSelectionEvent e) {
+            Object node = e.getPath().getLastPathComponent();
+            if (treeModel.isMoreColumns(node)) {
+                showMoreColumns((MoreColumns) node);
+            }
+        }
+    }
+
+    private class CollapsedColumns implements TreeExpansionListener {
+        @Override
+        public void treeExpanded(TreeExpansionEvent e) {
+        }
+
+        @Override
+        public void treeCollapsed(TreeExpansionEvent e) {
+            treeModel.collapsed(e.getPath().getLastPathComponent());
+        }
+    }
+
+    /**
+     * Runs Client calls on the loader thread and publishes the
+     * decoded keys to the tree while the rest is still being fetched.
+     */
+    private abstract class RowLoader extends SwingWorker<Void, Key> {
+        private volatile int total;
+        private int published;
+
+        protected abstract void load() throws Exception;
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            load();
+            return null;
+        }
+
+        protected void publishKeys(Map<String, Key> m) {
+            total = m.size();
+            for (Key k : m.values()) {
+                if (isCancelled()) {
+                    return;
+                }
+                publish(k);
+            }
+        }
+
+        /**
+         * Read keys and publish each row as soon as its batch is back.
+         */
+        protected void publishKeys(List<String> keys, final MultiKeyReader reader) throws Exception {
+            total = keys.size();
+            reader.read(keys, new ScanCallback() {
+                @Override
+                public void keyCallback(Key key) {
+                    if (isCancelled()) {
+                        reader.cancel();
+                        return;
+                    }
+                    publish(key);
+                }
+
+                @Override
+                public void rangeCallback(int finishedRanges, int totalRanges) {
+                }
+            });
+        }
+
+        @Override
+        protected void process(List<Key> keys) {
+            if (isCancelled()) {
+                return;
+            }
+
+            addKeyNodes(keys);
+            published += keys.size();
+            progressBar.setIndeterminate(false);
+            progressBar.setMaximum(total);
+            progressBar.setValue(published);
+        }
+
+        @Override
+        protected void done() {
+            loadFinished();
+            try {
+                get();
+            } catch (CancellationException e) {
+            } catch (InterruptedException e) {
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+            }
+        }
+    }
+
     private static final String COLUMN_FAMILY_TYPE_SUPER = "Super";
+    private static final int COLUMNS_PER_PAGE = 100;
 
     private Client client;
-    private boolean superColumn;
+    private volatile boolean superColumn;
+    private String keyspace;
+    private String columnFamily;
 
     private RepaintCallback rCallback;
+    private JPanel pagePanel;
+    private JButton previousButton;
+    private JButton nextButton;
+    private JLabel pageLabel;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
     private JScrollPane scrollPane;
     private JTree tree;
-    private DefaultTreeModel treeModel;
+    private ColumnTreeModel treeModel;
+
+    private ExecutorService loaderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ColumnTreeLoader");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    private SwingWorker<?, ?> loader;
 
-    private Map<DefaultMutableTreeNode, Unit> unitMap = new HashMap<DefaultMutableTreeNode, Unit>();
-    private Map<String, Unit> keyMap = new HashMap<String, Unit>();
+    private KeyRangePager pager;
+    private MoreColumns failedMoreNode;
 
     public ColumnTreePanel(Client client) {
+        super(new BorderLayout());
         this.client = client;
+
+        previousButton = new JButton("< previous");
+        previousButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showPage(false);
+            }
+        });
+        nextButton = new JButton("next >");
+        nextButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showPage(true);
+            }
+        });
+        pageLabel = new JLabel();
+        progressBar = new JProgressBar();
+        progressBar.setVisible(false);
+        cancelButton = new JButton("cancel");
+        cancelButton.setVisible(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (loader != null) {
+                    loader.cancel(true);
+                }
+            }
+        });
+
+        pagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pagePanel.add(previousButton);
+        pagePanel.add(nextButton);
+        pagePanel.add(pageLabel);
+        pagePanel.add(progressBar);
+        pagePanel.add(cancelButton);
+        updatePagePanel();
+
         scrollPane = new JScrollPane();
-        add(scrollPane);
+        scrollPane.getViewport().addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                showVisibleMoreColumns();
+            }
+        });
+        add(pagePanel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
         repaint();
     }
 
@@ -105,111 +286,284 @@ public class ColumnTreePanel extends JPanel {
         if (scrollPane != null && rCallback != null) {
             Dimension d = rCallback.callback();
             scrollPane.setPreferredSize(new Dimension(d.width - 5,
-                                                      d.height - 5));
+                                                      d.height - 5 - pagePanel.getPreferredSize().height));
             scrollPane.repaint();
         }
         super.repaint();
     }
 
-    public void showRow(String keyspace, String columnFamily, String key) {
-        try {
-            Map<String, String> m = client.getColumnFamily(keyspace, columnFamily);
-            if (m.get(CfDef._Fields.COLUMN_TYPE.name()).equals(COLUMN_FAMILY_TYPE_SUPER)) {
-                client.setSuperColumn(true);
-                superColumn = true;
-            } else {
-                client.setSuperColumn(false);
-                superColumn = false;
+    public void showRow(final String keyspace, final String columnFamily, final String key) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        pager = null;
+
+        startLoading(new RowLoader() {
+            @Override
+            protected void load() throws Exception {
+                checkSuperColumn(keyspace, columnFamily);
+                publishKeys(client.getKey(keyspace, columnFamily, null, key, null, COLUMNS_PER_PAGE));
             }
+        });
+    }
 
-            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-            Map<String, Key> l =
-                client.getKey(keyspace, columnFamily, null, key);
-            showTree(l);
-            setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-        } catch (Exception e) {
-            setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-            JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-            e.printStackTrace();
-        }
+    /**
+     * Show the rows of keys, read with multiget_slice calls of batchSize keys.
+     */
+    public void showRows(final String keyspace,
+                         final String columnFamily,
+                         final List<String> keys,
+                         int batchSize) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        pager = null;
+
+        final MultiKeyReader reader =
+            client.getMultiKeyReader(keyspace, columnFamily, batchSize, COLUMNS_PER_PAGE, MultiKeyReader.DEFAULT_MAX_IN_FLIGHT);
+        startLoading(new RowLoader() {
+            @Override
+            protected void load() throws Exception {
+                checkSuperColumn(keyspace, columnFamily);
+                publishKeys(keys, reader);
+            }
+        });
     }
 
-    public void showRows(String keyspace, String columnFamily, String startKey, String endKey, int rows) {
-        try {
-            Map<String, String> m = client.getColumnFamily(keyspace, columnFamily);
-            if (m.get(CfDef._Fields.COLUMN_TYPE.name()).equals(COLUMN_FAMILY_TYPE_SUPER)) {
-                client.setSuperColumn(true);
-                superColumn = true;
-            } else {
-                client.setSuperColumn(false);
-                superColumn = false;
+    public void showRows(final String keyspace,
+                         final String columnFamily,
+                         final String startKey,
+                         final String endKey,
+                         final int rows) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        pager = client.getKeyRangePager(keyspace, columnFamily, startKey, endKey, rows, COLUMNS_PER_PAGE);
+
+        final KeyRangePager p = pager;
+        startLoading(new RowLoader() {
+            @Override
+            protected void load() throws Exception {
+                checkSuperColumn(keyspace, columnFamily);
+                publishKeys(p.next());
             }
+        });
+    }
+
+    /**
+     * Show the rows matching expressions, paging through them with get_indexed_slices.
+     */
+    public void showIndexedRows(final String keyspace,
+                                final String columnFamily,
+                                List<IndexExpression> expressions,
+                                int rows) {
+        this.keyspace = keyspace;
+        this.columnFamily = columnFamily;
+        pager = client.getIndexQueryPager(keyspace, columnFamily, expressions, rows, COLUMNS_PER_PAGE);
+
+        final KeyRangePager p = pager;
+        startLoading(new RowLoader() {
+            @Override
+            protected void load() throws Exception {
+                checkSuperColumn(keyspace, columnFamily);
+                publishKeys(p.next());
+            }
+        });
+    }
+
+    private void showPage(final boolean forward) {
+        if (pager == null) {
+            return;
+        }
+
+        final KeyRangePager p = pager;
+        startLoading(new RowLoader() {
+            @Override
+            protected void load() throws Exception {
+                publishKeys(forward ? p.next() : p.previous());
+            }
+        });
+    }
+
+    private void checkSuperColumn(String keyspace, String columnFamily) throws Exception {
+        Map<String, String> m = client.getColumnFamily(keyspace, columnFamily);
+        if (m.get(CfDef._Fields.COLUMN_TYPE.name()).equals(COLUMN_FAMILY_TYPE_SUPER)) {
+            client.setSuperColumn(true);
+            superColumn = true;
+        } else {
+            client.setSuperColumn(false);
+            superColumn = false;
+        }
+    }
+
+    /**
+     * Cancel the running load, start a new empty tree and run
+     * the loader in the background.
+     */
+    private void startLoading(RowLoader rowLoader) {
+        if (loader != null) {
+            loader.cancel(true);
+        }
+
+        newTree();
+        loader = rowLoader;
 
-            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-            Map<String, Key> l =
-                client.listKeyAndValues(keyspace, columnFamily, startKey, endKey, rows);
-            showTree(l);
-            setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-        } catch (Exception e) {
-            setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
-            JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-            e.printStackTrace();
+        progressBar.setIndeterminate(true);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        updatePagePanel();
+
+        loaderExecutor.execute(rowLoader);
+    }
+
+    private void loadFinished() {
+        if (loader != null && !loader.isDone()) {
+            // a newer load has replaced the one that just finished
+            return;
         }
+
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+        updatePagePanel();
+        showVisibleMoreColumns();
+    }
+
+    private boolean isLoading() {
+        return loader != null && !loader.isDone();
+    }
+
+    private void updatePagePanel() {
+        boolean loading = isLoading();
+        previousButton.setEnabled(!loading && pager != null && pager.hasPrevious());
+        nextButton.setEnabled(!loading && pager != null && pager.hasNext());
+        pageLabel.setText(pager == null || pager.getPageNumber() == 0 ? "" : "page " + pager.getPageNumber());
+        pagePanel.revalidate();
     }
 
     public void clear() {
-        DefaultMutableTreeNode columnFamilyNode = new DefaultMutableTreeNode(client.getColumnFamily());
-        treeModel = new DefaultTreeModel(columnFamilyNode);
-        tree = new JTree(treeModel);
+        if (loader != null) {
+            loader.cancel(true);
+        }
+        pager = null;
+        updatePagePanel();
+
+        setTree(client.getColumnFamily());
+    }
+
+    private void newTree() {
+        setTree(columnFamily);
+        tree.addMouseListener(new MousePopup());
+        tree.addTreeSelectionListener(new MoreColumnsSelection());
+        tree.addTreeExpansionListener(new CollapsedColumns());
+    }
+
+    /**
+     * Show an empty tree for the column family. Rows get a fixed
+     * height so the tree does not measure every node it is given.
+     */
+    private void setTree(String columnFamily) {
+        final ColumnTreeModel model = new ColumnTreeModel(columnFamily);
+        treeModel = model;
+        tree = new JTree(model) {
+            private static final long serialVersionUID = 2717915404374383453L;
+
+            @Override
+            public String convertValueToText(Object value,
+                                             boolean selected,
+                                             boolean expanded,
+                                             boolean leaf,
+                                             int row,
+                                             boolean hasFocus) {
+                return model.getLabel(value);
+            }
+        };
         tree.setRootVisible(true);
+        if (tree.getRowHeight() <= 0) {
+            tree.setRowHeight(18);
+        }
+        tree.setLargeModel(true);
+
         scrollPane.getViewport().setView(tree);
         repaint();
     }
 
-    private void showTree(Map<String, Key> l) {
-        DefaultMutableTreeNode columnFamilyNode = new DefaultMutableTreeNode(client.getColumnFamily());
-        treeModel = new DefaultTreeModel(columnFamilyNode);
-        tree = new JTree(treeModel);
-        tree.setRootVisible(true);
-        tree.addMouseListener(new MousePopup());
+    private void addKeyNodes(List<Key> keys) {
+        boolean first = treeModel.getChildCount(treeModel.getRoot()) == 0;
+        treeModel.addKeys(keys);
+        if (first) {
+            tree.expandRow(0);
+        }
+    }
 
-        for (String keyName : l.keySet()) {
-            Key k = l.get(keyName);
-            DefaultMutableTreeNode keyNode = new DefaultMutableTreeNode(k.getName());
-            k.setTreeNode(keyNode);
-            columnFamilyNode.add(keyNode);
-            unitMap.put(keyNode, k);
-            keyMap.put(k.getName(), k);
-            if (k.isSuperColumn()) {
-                for (String sName : k.getSColumns().keySet()) {
-                    SColumn sc = k.getSColumns().get(sName);
-                    DefaultMutableTreeNode scNode = new DefaultMutableTreeNode(sc.getName());
-                    sc.setTreeNode(scNode);
-                    keyNode.add(scNode);
-                    unitMap.put(scNode, sc);
-                    for (String cName : sc.getCells().keySet()) {
-                        Cell c = sc.getCells().get(cName);
-                        DefaultMutableTreeNode cellNode =
-                            new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " + DATE_FORMAT.format(c.getDate()));
-                        c.setTreeNode(cellNode);
-                        scNode.add(cellNode);
-                        unitMap.put(cellNode, c);
+    /**
+     * Fetch the next slice of columns of a truncated key in the
+     * background and replace its "more columns" node with them.
+     */
+    private void showMoreColumns(final MoreColumns moreNode) {
+        final Key k = moreNode.getKey();
+        if (isLoading()) {
+            return;
+        }
+
+        final ColumnTreeModel model = treeModel;
+        loader = new SwingWorker<Key, Void>() {
+            @Override
+            protected Key doInBackground() throws Exception {
+                Map<String, Key> m = client.getKey(keyspace,
+                                                   columnFamily,
+                                                   null,
+                                                   k.getName(),
+                                                   k.getLastColumnName(),
+                                                   COLUMNS_PER_PAGE);
+                return m.get(k.getName());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    if (!isCancelled() && model == treeModel) {
+                        treeModel.addColumns(k, get());
                     }
+                } catch (InterruptedException e) {
+                } catch (ExecutionException e) {
+                    // only retry a failed slice when the node is selected
+                    failedMoreNode = moreNode;
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
                 }
-            } else {
-                for (String cName : k.getCells().keySet()) {
-                    Cell c = k.getCells().get(cName);
-                    DefaultMutableTreeNode cellNode =
-                        new DefaultMutableTreeNode(c.getName() + "=" + c.getValue() + ", " + DATE_FORMAT.format(c.getDate()));
-                    c.setTreeNode(cellNode);
-                    keyNode.add(cellNode);
-                    unitMap.put(cellNode, c);
-                }
+                loadFinished();
             }
+        };
+
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(true);
+        updatePagePanel();
+        loaderExecutor.execute(loader);
+    }
+
+    /**
+     * Load further columns when a "more columns" node is scrolled
+     * or expanded into view.
+     */
+    private void showVisibleMoreColumns() {
+        if (tree == null || isLoading()) {
+            return;
         }
 
-        scrollPane.getViewport().setView(tree);
-        repaint();
+        Rectangle r = tree.getVisibleRect();
+        int first = tree.getClosestRowForLocation(r.x, r.y);
+        int last = tree.getClosestRowForLocation(r.x, r.y + r.height);
+        if (first < 0) {
+            return;
+        }
+
+        for (int row = first; row <= last; row++) {
+            TreePath path = tree.getPathForRow(row);
+            if (path != null &&
+                treeModel.isMoreColumns(path.getLastPathComponent()) &&
+                path.getLastPathComponent() != failedMoreNode) {
+                showMoreColumns((MoreColumns) path.getLastPathComponent());
+                return;
+            }
+        }
     }
 
     /**
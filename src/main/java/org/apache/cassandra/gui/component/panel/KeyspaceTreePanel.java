@@ -5,37 +5,51 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTree;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.ExpandVetoException;
 import javax.swing.tree.TreePath;
 
 import org.apache.cassandra.client.Client;
+import org.apache.cassandra.client.ColumnFamilyCodecs;
+import org.apache.cassandra.client.Exporter;
+import org.apache.cassandra.client.Importer;
+import org.apache.cassandra.client.RowCounter;
 import org.apache.cassandra.gui.component.dialog.ColumnFamilyDialog;
+import org.apache.cassandra.gui.component.dialog.CountDialog;
+import org.apache.cassandra.gui.component.dialog.ExportDialog;
+import org.apache.cassandra.gui.component.dialog.ImportDialog;
+import org.apache.cassandra.gui.component.dialog.IndexQueryDialog;
 import org.apache.cassandra.gui.component.dialog.KeyDialog;
 import org.apache.cassandra.gui.component.dialog.KeyRangeDialog;
 import org.apache.cassandra.gui.component.dialog.KeyspaceDialog;
+import org.apache.cassandra.gui.component.dialog.MultiKeyDialog;
 import org.apache.cassandra.gui.control.callback.PropertiesCallback;
 import org.apache.cassandra.gui.control.callback.RepaintCallback;
 import org.apache.cassandra.gui.control.callback.SelectedColumnFamilyCallback;
-import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.cassandra.thrift.CfDef;
 import org.apache.cassandra.thrift.KsDef;
-import org.apache.cassandra.thrift.NotFoundException;
 import org.apache.cassandra.unit.ColumnFamily;
 import org.apache.thrift.TException;
 
@@ -60,8 +74,13 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
         public static final int OPERATION_UPDATE_COLUMN_FAMILY = 10;
         public static final int OPERATION_REFRESH_CLUSTER = 11;
         public static final int OPERAITON_CQL = 12;
+        public static final int OPERATION_EXPORT = 13;
+        public static final int OPERATION_IMPORT = 14;
+        public static final int OPERATION_KEYS = 15;
+        public static final int OPERATION_INDEX_QUERY = 16;
+        public static final int OPERATION_COUNT = 17;
 
-        public static final int ROWS_1000 = 1000;
+        public static final int ROWS_PER_PAGE = 100;
 
         private int operation;
         private DefaultMutableTreeNode node;
@@ -96,7 +115,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                     return;
                 }
 
-                node.add(new DefaultMutableTreeNode(ksd.getKeyspaceName()));
+                node.add(new KeyspaceNode(ksd.getKeyspaceName(), new ArrayList<String>()));
                 treeModel.reload(node);
                 break;
             case OPERATION_UPDATE_KEYSPACE:
@@ -160,6 +179,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
 
                 break;
             case OPERATION_REFRESH_CLUSTER:
+                client.invalidateSchema();
                 refreshTree();
                 break;
             case OPERAITON_CREATE_COLUMN_FAMILY:
@@ -181,7 +201,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                     return;
                 }
 
-                node.add(new DefaultMutableTreeNode(cfd.getColumnFamily().getColumnFamilyName()));
+                ((KeyspaceNode) node).addColumnFamily(cfd.getColumnFamily().getColumnFamilyName());
                 treeModel.reload(node);
                 break;
             case OPERATION_UPDATE_COLUMN_FAMILY:
@@ -260,7 +280,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                                                 lastSelectedColumnFamily,
                                                 "",
                                                 "",
-                                                ROWS_1000);
+                                                ROWS_PER_PAGE);
                         setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
                     } catch (Exception ex) {
                         setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
@@ -295,7 +315,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                                         lastSelectedColumnFamily,
                                         startKey,
                                         endKey,
-                                        ROWS_1000);
+                                        ROWS_PER_PAGE);
                 break;
             case OPERATION_KEY:
                 if (lastSelectedKeysapce == null ||
@@ -313,12 +333,183 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                                        lastSelectedColumnFamily,
                                        kd.getkey());
                 break;
+            case OPERATION_KEYS:
+                if (lastSelectedKeysapce == null ||
+                    lastSelectedColumnFamily == null) {
+                    return;
+                }
+
+                MultiKeyDialog mkd = new MultiKeyDialog();
+                mkd.setVisible(true);
+                if (mkd.isCancel()) {
+                    return;
+                }
+
+                cCallback.getKeysCallback(lastSelectedKeysapce,
+                                          lastSelectedColumnFamily,
+                                          mkd.getKeys(),
+                                          mkd.getBatchSize());
+                break;
+            case OPERATION_INDEX_QUERY:
+                if (lastSelectedKeysapce == null ||
+                    lastSelectedColumnFamily == null) {
+                    return;
+                }
+
+                List<String> indexedColumns = null;
+                ColumnFamilyCodecs codecs = null;
+                try {
+                    indexedColumns = client.getIndexedColumns(lastSelectedKeysapce, lastSelectedColumnFamily);
+                    codecs = client.getCodecs(lastSelectedKeysapce, lastSelectedColumnFamily);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(null, "error: " + ex.toString());
+                    ex.printStackTrace();
+                    return;
+                }
+
+                if (indexedColumns.isEmpty()) {
+                    JOptionPane.showMessageDialog(null, lastSelectedColumnFamily + " has no indexed column.");
+                    return;
+                }
+
+                IndexQueryDialog iqd = new IndexQueryDialog(indexedColumns, codecs);
+                iqd.setVisible(true);
+                if (iqd.isCancel()) {
+                    return;
+                }
+
+                cCallback.indexQueryCallback(lastSelectedKeysapce,
+                                             lastSelectedColumnFamily,
+                                             iqd.getExpressions(),
+                                             ROWS_PER_PAGE);
+                break;
+            case OPERATION_EXPORT:
+                if (lastSelectedKeysapce == null ||
+                    lastSelectedColumnFamily == null) {
+                    return;
+                }
+
+                JFileChooser fc = new JFileChooser();
+                fc.setSelectedFile(new File(lastSelectedColumnFamily + "." + Exporter.Format.CSV.getExtension()));
+                if (fc.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+
+                File file = fc.getSelectedFile();
+                Exporter exporter = new Exporter(client,
+                                                 lastSelectedKeysapce,
+                                                 lastSelectedColumnFamily,
+                                                 Exporter.Format.forFile(file));
+                new ExportDialog(exporter, file).export();
+                break;
+            case OPERATION_COUNT:
+                if (lastSelectedKeysapce == null ||
+                    lastSelectedColumnFamily == null) {
+                    return;
+                }
+
+                new CountDialog(client.getRowCounter(lastSelectedKeysapce,
+                                                     lastSelectedColumnFamily,
+                                                     RowCounter.DEFAULT_BATCH_SIZE),
+                                null,
+                                null).count();
+                break;
+            case OPERATION_IMPORT:
+                if (lastSelectedKeysapce == null ||
+                    lastSelectedColumnFamily == null) {
+                    return;
+                }
+
+                JFileChooser ifc = new JFileChooser();
+                if (ifc.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+
+                File importFile = ifc.getSelectedFile();
+                Importer importer = new Importer(client,
+                                                 lastSelectedKeysapce,
+                                                 lastSelectedColumnFamily,
+                                                 Exporter.Format.forFile(importFile));
+                new ImportDialog(importer, importFile).importFile();
+                break;
             case OPERAITON_CQL:
                 break;
             }
         }
     }
 
+    /**
+     * A keyspace whose column family nodes are only added
+     * the first time it is expanded, from the names read
+     * with the keyspace.
+     */
+    private static class KeyspaceNode extends DefaultMutableTreeNode {
+        private static final long serialVersionUID = -2170548618633412796L;
+
+        private List<String> columnFamilies;
+        private boolean loaded;
+
+        public KeyspaceNode(String keyspace, List<String> columnFamilies) {
+            super(keyspace);
+            this.columnFamilies = columnFamilies;
+        }
+
+        /**
+         * Add the column family nodes.
+         *
+         * @return the indices of the added nodes
+         */
+        public int[] load() {
+            int[] indices = new int[columnFamilies.size()];
+            for (String columnFamily : columnFamilies) {
+                indices[getChildCount()] = getChildCount();
+                add(new DefaultMutableTreeNode(columnFamily));
+            }
+            columnFamilies = null;
+            loaded = true;
+
+            return indices;
+        }
+
+        public void addColumnFamily(String columnFamily) {
+            if (loaded) {
+                add(new DefaultMutableTreeNode(columnFamily));
+            } else {
+                columnFamilies.add(columnFamily);
+            }
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return loaded && getChildCount() == 0;
+        }
+
+        /**
+         * @return the loaded
+         */
+        public boolean isLoaded() {
+            return loaded;
+        }
+    }
+
+    private class KeyspaceExpansion implements TreeWillExpandListener {
+        @Override
+        public void treeWillExpand(TreeExpansionEvent event) throws ExpandVetoException {
+            Object o = event.getPath().getLastPathComponent();
+            if (!(o instanceof KeyspaceNode) || ((KeyspaceNode) o).isLoaded()) {
+                return;
+            }
+
+            // the names were read with the keyspaces, nothing is sent here
+            KeyspaceNode node = (KeyspaceNode) o;
+            treeModel.nodesWereInserted(node, node.load());
+        }
+
+        @Override
+        public void treeWillCollapse(TreeExpansionEvent event) throws ExpandVetoException {
+        }
+    }
+
     private class MousePopup extends MouseAdapter {
         @Override
         public void mouseReleased(MouseEvent e) {
@@ -352,9 +543,14 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
                     lastSelectedKeysapce = (String) parent.getUserObject();
                     lastSelectedColumnFamily = columnFamily;
 
-                    popup.add(new PopupAction("show 1000 rows", PopupAction.OPERATION_ROWS, node));
+                    popup.add(new PopupAction("show rows", PopupAction.OPERATION_ROWS, node));
                     popup.add(new PopupAction("key range rows", PopupAction.OPERATION_KEYRANGE, node));
                     popup.add(new PopupAction("get key", PopupAction.OPERATION_KEY, node));
+                    popup.add(new PopupAction("get keys", PopupAction.OPERATION_KEYS, node));
+                    popup.add(new PopupAction("index query", PopupAction.OPERATION_INDEX_QUERY, node));
+                    popup.add(new PopupAction("count rows", PopupAction.OPERATION_COUNT, node));
+                    popup.add(new PopupAction("export", PopupAction.OPERATION_EXPORT, node));
+                    popup.add(new PopupAction("import", PopupAction.OPERATION_IMPORT, node));
                     popup.add(new PopupAction("CQL", PopupAction.OPERAITON_CQL, node));
                     popup.add(new PopupAction("properties", PopupAction.OPERATION_UPDATE_COLUMN_FAMILY, node));
                     popup.add(new PopupAction("truncate column family", PopupAction.OPERATION_TRUNCATE_COLUMN_FAMILY, node));
@@ -387,6 +583,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
     private String deletedColumnFamily;
     private JTree tree;
     private DefaultTreeModel treeModel;
+    private SwingWorker<List<KsDef>, Void> loader;
 
     public KeyspaceTreePanel(Client client) {
         this.client = client;
@@ -402,31 +599,7 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
             tree.setRootVisible(true);
             tree.addMouseListener(new MousePopup());
             tree.addTreeSelectionListener(this);
-
-            List<KsDef> ks = null;
-            try {
-                ks = new ArrayList<KsDef>(client.getKeyspaces());
-            } catch (InvalidRequestException e) {
-                //TODO - Handle eligantly
-                e.printStackTrace();
-            }
-            Collections.sort(ks);
-            for (KsDef keyspace : ks) {
-                DefaultMutableTreeNode keyspaceNode = new DefaultMutableTreeNode(keyspace.getName());
-                clusterNode.add(keyspaceNode);
-                try {
-                    Set<String> cfs = client.getColumnFamilys(keyspace.getName());
-                    for (String columnFamily : cfs) {
-                        keyspaceNode.add(new DefaultMutableTreeNode(columnFamily));
-                    }
-                } catch (NotFoundException e) {
-                    JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-                    e.printStackTrace();
-                } catch (InvalidRequestException invReq) {
-                    JOptionPane.showMessageDialog(null, "error: " + invReq.getMessage());
-                    invReq.printStackTrace();
-                }
-            }
+            tree.addTreeWillExpandListener(new KeyspaceExpansion());
         } catch (TException e) {
             JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
             e.printStackTrace();
@@ -437,42 +610,59 @@ public class KeyspaceTreePanel extends JPanel implements TreeSelectionListener {
         scrollPane.getViewport().setView(tree);
         add(scrollPane);
         repaint();
+
+        refreshTree();
     }
 
+    /**
+     * Read the keyspaces in the background and replace the keyspace nodes
+     * once they are read. The column families of a keyspace are taken
+     * from its definition and added when the keyspace is expanded.
+     */
     public void refreshTree() {
-        try {
-            DefaultMutableTreeNode node = (DefaultMutableTreeNode) treeModel.getRoot();
-            node.removeAllChildren();
-
-            List<KsDef> ks = null;
-            try {
-                ks = new ArrayList<KsDef>(client.getKeyspaces());
-            } catch (InvalidRequestException e) {
-                e.printStackTrace();
+        if (loader != null) {
+            loader.cancel(true);
+        }
+
+        loader = new SwingWorker<List<KsDef>, Void>() {
+            @Override
+            protected List<KsDef> doInBackground() throws Exception {
+                List<KsDef> ks = new ArrayList<KsDef>(client.getKeyspaces());
+                Collections.sort(ks);
+                return ks;
             }
-            Collections.sort(ks);
-            for (KsDef keyspace : ks) {
-                DefaultMutableTreeNode keyspaceNode = new DefaultMutableTreeNode(keyspace.getName());
-                node.add(keyspaceNode);
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+
+                List<KsDef> ks = null;
                 try {
-                    Set<String> cfs = client.getColumnFamilys(keyspace.getName());
-                    for (String columnFamily : cfs) {
-                        keyspaceNode.add(new DefaultMutableTreeNode(columnFamily));
+                    ks = get();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(null, "error: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
+                    return;
+                }
+
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) treeModel.getRoot();
+                node.removeAllChildren();
+                for (KsDef keyspace : ks) {
+                    List<String> cfs = new ArrayList<String>();
+                    for (CfDef cfDef : keyspace.getCf_defs()) {
+                        cfs.add(cfDef.getName());
                     }
-                } catch (NotFoundException e) {
-                    JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-                    e.printStackTrace();
-                } catch (InvalidRequestException invReq) {
-                    JOptionPane.showMessageDialog(null, "error: " + invReq.getMessage());
-                    invReq.printStackTrace();
+                    Collections.sort(cfs);
+                    node.add(new KeyspaceNode(keyspace.getName(), cfs));
                 }
+                treeModel.reload();
             }
-            treeModel.reload();
-        } catch (TException e) {
-            JOptionPane.showMessageDialog(null, "error: " + e.getMessage());
-            e.printStackTrace();
-            return;
-        }
+        };
+        loader.execute();
     }
 
     @Override
@@ -0,0 +1,235 @@
+package org.apache.cassandra.gui.component.panel;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JPanel;
+import javax.swing.ToolTipManager;
+
+import org.apache.cassandra.node.NodeInfo;
+import org.apache.cassandra.node.NodeStats;
+import org.apache.cassandra.node.RingNode;
+
+/**
+ * Draws a ring with many tokens, as with virtual nodes, where a vertex
+ * per token would not be readable.
+ * Every range is an arc colored after its primary endpoint and sized
+ * after the share of the ring it owns; a legend lists the endpoints with
+ * their token count and total ownership.
+ * The ring is painted once into an image, repaints only copy it.
+ */
+public class RingPanel extends JPanel {
+    private static final long serialVersionUID = -7046584853124587521L;
+
+    private static final int RING_SIZE = 400;
+    private static final int MARGIN = 20;
+    private static final int RING_WIDTH = 60;
+    private static final int LEGEND_WIDTH = 520;
+    private static final int LEGEND_LINE = 18;
+    private static final Color DOWN_COLOR = Color.LIGHT_GRAY;
+
+    private List<String> ranges;
+    private List<String> endpoints = new ArrayList<String>();
+    private Map<String, Integer> tokenCounts = new HashMap<String, Integer>();
+    private Map<String, Float> ownerships = new HashMap<String, Float>();
+    private Map<String, Color> colors = new HashMap<String, Color>();
+    private List<String> liveNodes;
+    private Map<String, String> loadMap;
+    private Map<String, NodeStats> statsMap;
+
+    /**
+     * the angle where each range starts, clockwise from the top, in degrees
+     */
+    private double[] starts;
+    private double[] extents;
+    private String[] rangeEndpoints;
+    private float[] rangeOwnerships;
+
+    private BufferedImage ringImage;
+
+    /**
+     * @param statsMap node statistics shown in the legend, may be filled later
+     */
+    public RingPanel(RingNode ringNode, Map<String, NodeStats> statsMap) {
+        this.ranges = ringNode.getRanges();
+        this.liveNodes = ringNode.getLiveNodes();
+        this.loadMap = ringNode.getLoadMap();
+        this.statsMap = statsMap;
+
+        Map<String, String> rangeMap = ringNode.getRangeMap();
+        Map<String, Float> ownershipMap = ringNode.getOwnershipMap();
+
+        int n = ranges.size();
+        starts = new double[n];
+        extents = new double[n];
+        rangeEndpoints = new String[n];
+        rangeOwnerships = new float[n];
+
+        double angle = 0;
+        for (int i = 0; i < n; i++) {
+            String endpoint = rangeMap.get(ranges.get(i));
+            float ownership = ownershipMap == null || !ownershipMap.containsKey(ranges.get(i)) ?
+                                  1f / n :
+                                  ownershipMap.get(ranges.get(i));
+
+            starts[i] = angle;
+            extents[i] = ownership * 360;
+            rangeEndpoints[i] = endpoint;
+            rangeOwnerships[i] = ownership;
+            angle += extents[i];
+
+            if (!tokenCounts.containsKey(endpoint)) {
+                endpoints.add(endpoint);
+                tokenCounts.put(endpoint, 0);
+                ownerships.put(endpoint, 0f);
+            }
+            tokenCounts.put(endpoint, tokenCounts.get(endpoint) + 1);
+            ownerships.put(endpoint, ownerships.get(endpoint) + ownership);
+        }
+
+        for (int i = 0; i < endpoints.size(); i++) {
+            String endpoint = endpoints.get(i);
+            colors.put(endpoint, liveNodes.contains(endpoint) ?
+                                     Color.getHSBColor((float) i / endpoints.size(), 0.6f, 0.9f) :
+                                     DOWN_COLOR);
+        }
+
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(RING_SIZE + 2 * MARGIN + LEGEND_WIDTH,
+                                       Math.max(RING_SIZE, LEGEND_LINE * (endpoints.size() + 1)) + 2 * MARGIN));
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    /**
+     * @return the primary endpoint of the range drawn at p, null if p is not on the ring
+     */
+    public String getEndpointAt(Point p) {
+        int i = getRangeAt(p);
+        return i < 0 ? null : rangeEndpoints[i];
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int i = getRangeAt(e.getPoint());
+        if (i < 0) {
+            return null;
+        }
+
+        return "<html>" +
+               "Address: " + rangeEndpoints[i] + "<br/>" +
+               "Range: " + ranges.get(i) + "<br/>" +
+               String.format("Owns: %.3f%%", rangeOwnerships[i] * 100) +
+               "</html>";
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        if (ringImage == null) {
+            ringImage = paintRing();
+        }
+        g.drawImage(ringImage, MARGIN, MARGIN, null);
+
+        paintLegend((Graphics2D) g);
+    }
+
+    private BufferedImage paintRing() {
+        BufferedImage image = new BufferedImage(RING_SIZE, RING_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            Arc2D.Double arc = new Arc2D.Double();
+            for (int i = 0; i < starts.length; i++) {
+                g.setColor(colors.get(rangeEndpoints[i]));
+                // Java2D angles go counterclockwise from three o'clock
+                arc.setArc(0, 0, RING_SIZE, RING_SIZE, 90 - starts[i], -extents[i], Arc2D.PIE);
+                g.fill(arc);
+            }
+
+            g.setColor(getBackground());
+            g.fill(new Ellipse2D.Double(RING_WIDTH, RING_WIDTH, RING_SIZE - 2 * RING_WIDTH, RING_SIZE - 2 * RING_WIDTH));
+
+            g.setColor(Color.DARK_GRAY);
+            String s = ranges.size() + " tokens, " + endpoints.size() + " nodes";
+            FontMetrics fm = g.getFontMetrics();
+            g.drawString(s, (RING_SIZE - fm.stringWidth(s)) / 2, RING_SIZE / 2);
+        } finally {
+            g.dispose();
+        }
+
+        return image;
+    }
+
+    private void paintLegend(Graphics2D g) {
+        int x = RING_SIZE + 2 * MARGIN;
+        int y = MARGIN;
+        FontMetrics fm = g.getFontMetrics();
+        int baseline = (LEGEND_LINE + fm.getAscent() - fm.getDescent()) / 2;
+
+        Font font = g.getFont();
+        g.setFont(font.deriveFont(Font.BOLD));
+        g.setColor(Color.BLACK);
+        g.drawString("Address / Tokens / Owns / Load / Heap / Pending", x + LEGEND_LINE, y + baseline);
+        g.setFont(font);
+
+        for (String endpoint : endpoints) {
+            y += LEGEND_LINE;
+            g.setColor(colors.get(endpoint));
+            g.fillRect(x, y + 3, LEGEND_LINE - 6, LEGEND_LINE - 6);
+
+            StringBuilder sb = new StringBuilder(endpoint);
+            sb.append(" / ").append(tokenCounts.get(endpoint));
+            sb.append(String.format(" / %.2f%%", ownerships.get(endpoint) * 100));
+            sb.append(" / ").append(loadMap.containsKey(endpoint) ? loadMap.get(endpoint) : "?");
+
+            NodeStats stats = statsMap.get(endpoint);
+            if (!liveNodes.contains(endpoint)) {
+                sb.append(" / down");
+            } else if (stats != null && stats.getError() != null) {
+                sb.append(" / ").append(stats.getError());
+            } else if (stats != null) {
+                NodeInfo ni = stats.getNodeInfo();
+                sb.append(String.format(" / %.1f of %.1f MB", ni.getMemUsed(), ni.getMemMax()));
+                sb.append(" / ").append(stats.getPendingTasks());
+            }
+
+            g.setColor(Color.BLACK);
+            g.drawString(sb.toString(), x + LEGEND_LINE, y + baseline);
+        }
+    }
+
+    /**
+     * @return the index of the range drawn at p, -1 if p is not on the ring
+     */
+    private int getRangeAt(Point p) {
+        double r = RING_SIZE / 2.0;
+        double dx = p.getX() - MARGIN - r;
+        double dy = p.getY() - MARGIN - r;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (starts.length == 0 || distance > r || distance < r - RING_WIDTH) {
+            return -1;
+        }
+
+        double angle = Math.toDegrees(Math.atan2(dx, -dy));
+        if (angle < 0) {
+            angle += 360;
+        }
+
+        int i = Arrays.binarySearch(starts, angle);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+}
@@ -1,5 +1,9 @@
 package org.apache.cassandra.gui.control.callback;
 
+import java.util.List;
+
+import org.apache.cassandra.thrift.IndexExpression;
+
 public interface SelectedColumnFamilyCallback {
     public void rangeCallback(String keyspaceName,
                               String columnFamilyName,
@@ -10,4 +14,14 @@ public interface SelectedColumnFamilyCallback {
     public void getCacllback(String keyspace,
                              String columnFamily,
                              String key);
+
+    public void getKeysCallback(String keyspace,
+                                String columnFamily,
+                                List<String> keys,
+                                int batchSize);
+
+    public void indexQueryCallback(String keyspace,
+                                   String columnFamily,
+                                   List<IndexExpression> expressions,
+                                   int rows);
 }
@@ -0,0 +1,86 @@
+package org.apache.cassandra.node;
+
+import java.io.Serializable;
+
+/**
+ * The statistics of a node collected for the ring view.
+ */
+public class NodeStats implements Serializable {
+    private static final long serialVersionUID = 3218897236061722813L;
+
+    private String endpoint;
+    private NodeInfo nodeInfo;
+    private int activeTasks;
+    private long pendingTasks;
+    private String error;
+
+    /**
+     * @return the endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @param endpoint the endpoint to set
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the nodeInfo, null if it could not be read
+     */
+    public NodeInfo getNodeInfo() {
+        return nodeInfo;
+    }
+
+    /**
+     * @param nodeInfo the nodeInfo to set
+     */
+    public void setNodeInfo(NodeInfo nodeInfo) {
+        this.nodeInfo = nodeInfo;
+    }
+
+    /**
+     * @return the active tasks of every thread pool
+     */
+    public int getActiveTasks() {
+        return activeTasks;
+    }
+
+    /**
+     * @param activeTasks the activeTasks to set
+     */
+    public void setActiveTasks(int activeTasks) {
+        this.activeTasks = activeTasks;
+    }
+
+    /**
+     * @return the pending tasks of every thread pool
+     */
+    public long getPendingTasks() {
+        return pendingTasks;
+    }
+
+    /**
+     * @param pendingTasks the pendingTasks to set
+     */
+    public void setPendingTasks(long pendingTasks) {
+        this.pendingTasks = pendingTasks;
+    }
+
+    /**
+     * @return the error, null if the statistics were read
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @param error the error to set
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -16,6 +16,7 @@ public class RingNode implements Serializable {
     private List<String> liveNodes;
     private List<String> deadNodes;
     private Map<String, String> loadMap;
+    private Map<String, Float> ownershipMap;
 
     /**
      * @return the rangeMap
@@ -86,4 +87,19 @@ public class RingNode implements Serializable {
     public void setLoadMap(Map<String, String> loadMap) {
         this.loadMap = loadMap;
     }
+
+    /**
+     * @return the share of the ring owned by the range ending at each token,
+     *         null if it is unknown
+     */
+    public Map<String, Float> getOwnershipMap() {
+        return ownershipMap;
+    }
+
+    /**
+     * @param ownershipMap the ownershipMap to set
+     */
+    public void setOwnershipMap(Map<String, Float> ownershipMap) {
+        this.ownershipMap = ownershipMap;
+    }
 }
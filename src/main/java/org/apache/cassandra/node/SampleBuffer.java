@@ -0,0 +1,57 @@
+package org.apache.cassandra.node;
+
+/**
+ * The last capacity samples of a metric, oldest first.
+ * Samples are kept in a primitive array which is overwritten
+ * once it is full, so memory stays bounded however long it is fed.
+ */
+public class SampleBuffer {
+    private final double[] samples;
+    private int start;
+    private int size;
+
+    public SampleBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        samples = new double[capacity];
+    }
+
+    public synchronized void add(double sample) {
+        if (size < samples.length) {
+            samples[(start + size) % samples.length] = sample;
+            size++;
+        } else {
+            samples[start] = sample;
+            start = (start + 1) % samples.length;
+        }
+    }
+
+    /**
+     * @return the samples, oldest first
+     */
+    public synchronized double[] toArray() {
+        double[] a = new double[size];
+        for (int i = 0; i < size; i++) {
+            a[i] = samples[(start + i) % samples.length];
+        }
+
+        return a;
+    }
+
+    /**
+     * @return the newest sample, 0 if there is none
+     */
+    public synchronized double last() {
+        return size == 0 ? 0 : samples[(start + size - 1) % samples.length];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+}
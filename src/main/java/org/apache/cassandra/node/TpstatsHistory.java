@@ -0,0 +1,127 @@
+package org.apache.cassandra.node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The thread pool statistics of a node over time.
+ */
+public class TpstatsHistory {
+    /**
+     * The samples of one thread pool.
+     */
+    public static class PoolHistory {
+        private final String poolName;
+        private final SampleBuffer active;
+        private final SampleBuffer pending;
+        private final SampleBuffer completedRate;
+        private long lastCompleted = -1;
+        private long lastTime;
+
+        private PoolHistory(String poolName, int capacity) {
+            this.poolName = poolName;
+            active = new SampleBuffer(capacity);
+            pending = new SampleBuffer(capacity);
+            completedRate = new SampleBuffer(capacity);
+        }
+
+        private void add(long time, Tpstats t) {
+            active.add(t.getActiveCount());
+            pending.add(t.getPendingTasks());
+
+            // the first sample only sets the base of the rate
+            if (lastCompleted >= 0 && time > lastTime) {
+                long completed = Math.max(0, t.getCompletedTasks() - lastCompleted);
+                completedRate.add(completed * 1000.0 / (time - lastTime));
+            }
+            lastCompleted = t.getCompletedTasks();
+            lastTime = time;
+        }
+
+        /**
+         * @return the poolName
+         */
+        public String getPoolName() {
+            return poolName;
+        }
+
+        /**
+         * @return the active thread counts
+         */
+        public SampleBuffer getActive() {
+            return active;
+        }
+
+        /**
+         * @return the pending task counts
+         */
+        public SampleBuffer getPending() {
+            return pending;
+        }
+
+        /**
+         * @return the completed tasks per second between two samples
+         */
+        public SampleBuffer getCompletedRate() {
+            return completedRate;
+        }
+    }
+
+    private final String endpoint;
+    private final int capacity;
+    private final Map<String, PoolHistory> pools = new TreeMap<String, PoolHistory>();
+    private volatile Exception lastError;
+
+    /**
+     * @param capacity number of samples kept per pool and metric
+     */
+    public TpstatsHistory(String endpoint, int capacity) {
+        this.endpoint = endpoint;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add the statistics read at time, in milliseconds.
+     */
+    public synchronized void add(long time, List<Tpstats> l) {
+        for (Tpstats t : l) {
+            PoolHistory h = pools.get(t.getPoolName());
+            if (h == null) {
+                h = new PoolHistory(t.getPoolName(), capacity);
+                pools.put(t.getPoolName(), h);
+            }
+            h.add(time, t);
+        }
+        lastError = null;
+    }
+
+    /**
+     * @return the pools sampled so far, by name
+     */
+    public synchronized List<PoolHistory> getPools() {
+        return new ArrayList<PoolHistory>(pools.values());
+    }
+
+    /**
+     * @return the endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the error of the last poll, null if it succeeded
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @param lastError the lastError to set
+     */
+    public void setLastError(Exception lastError) {
+        this.lastError = lastError;
+    }
+}
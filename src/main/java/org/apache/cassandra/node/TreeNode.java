@@ -1,39 +1,27 @@
 package org.apache.cassandra.node;
 
 import java.io.Serializable;
-import java.util.Map;
-
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 
 import org.apache.cassandra.client.Client;
+import org.apache.cassandra.gui.component.model.ColumnTreeModel;
 import org.apache.cassandra.unit.Unit;
 
 public class TreeNode implements Serializable {
     private static final long serialVersionUID = -227448839733721587L;
 
     private Client client;
-    private DefaultMutableTreeNode node;
-    private DefaultTreeModel treeModel;
+    private ColumnTreeModel treeModel;
     private Unit unit;
-    private Map<DefaultMutableTreeNode, Unit> unitMap;
-    private Map<String, Unit> keyMap;
 
     public TreeNode() {
     }
 
     public TreeNode(Client client,
-                    DefaultMutableTreeNode node,
-                    DefaultTreeModel treeModel,
-                    Unit unit,
-                    Map<DefaultMutableTreeNode, Unit> unitMap,
-                    Map<String, Unit> keyMap) {
+                    ColumnTreeModel treeModel,
+                    Unit unit) {
         this.client = client;
-        this.node = node;
         this.treeModel = treeModel;
         this.unit = unit;
-        this.unitMap = unitMap;
-        this.keyMap = keyMap;
     }
 
     /**
@@ -50,31 +38,17 @@ public class TreeNode implements Serializable {
         this.client = client;
     }
 
-    /**
-     * @return the node
-     */
-    public DefaultMutableTreeNode getNode() {
-        return node;
-    }
-
-    /**
-     * @param node the node to set
-     */
-    public void setNode(DefaultMutableTreeNode node) {
-        this.node = node;
-    }
-
     /**
      * @return the treeModel
      */
-    public DefaultTreeModel getTreeModel() {
+    public ColumnTreeModel getTreeModel() {
         return treeModel;
     }
 
     /**
      * @param treeModel the treeModel to set
      */
-    public void setTreeModel(DefaultTreeModel treeModel) {
+    public void setTreeModel(ColumnTreeModel treeModel) {
         this.treeModel = treeModel;
     }
 
@@ -91,32 +65,4 @@ public class TreeNode implements Serializable {
     public void setUnit(Unit unit) {
         this.unit = unit;
     }
-
-    /**
-     * @return the unitMap
-     */
-    public Map<DefaultMutableTreeNode, Unit> getUnitMap() {
-        return unitMap;
-    }
-
-    /**
-     * @param unitMap the unitMap to set
-     */
-    public void setUnitMap(Map<DefaultMutableTreeNode, Unit> unitMap) {
-        this.unitMap = unitMap;
-    }
-
-    /**
-     * @return the keyMap
-     */
-    public Map<String, Unit> getKeyMap() {
-        return keyMap;
-    }
-
-    /**
-     * @param keyMap the keyMap to set
-     */
-    public void setKeyMap(Map<String, Unit> keyMap) {
-        this.keyMap = keyMap;
-    }
 }
@@ -1,27 +1,56 @@
 package org.apache.cassandra.unit;
 
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.util.Date;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-
+/**
+ * A column.
+ * The value is kept as the bytes read from Cassandra and the timestamp
+ * as microseconds, the value string and the date are only built when
+ * they are asked for, e.g. when the cell is rendered, so a large page
+ * of cells does not hold a String and a Date per cell.
+ */
 public class Cell implements Unit, Serializable {
     private static final long serialVersionUID = 4517336493185234248L;
 
+    private static final String UTF8 = "UTF8";
+
     private Unit parent;
     private String name;
-    private String value;
-    private Date date;
-    private DefaultMutableTreeNode treeNode;
+    private byte[] value;
+    private long timestamp;
+    private transient Codec codec;
 
     public Cell() {
     }
 
     public Cell(Unit parent, String name, String value, Date date) {
+        this.parent = parent;
+        this.name = name;
+        setValue(value);
+        setDate(date);
+    }
+
+    /**
+     * @param value the raw value, which is not copied
+     * @param timestamp the timestamp in microseconds
+     */
+    public Cell(Unit parent, String name, byte[] value, long timestamp) {
         this.parent = parent;
         this.name = name;
         this.value = value;
-        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param value the raw value, which is not copied
+     * @param timestamp the timestamp in microseconds
+     * @param codec the codec of the value, decoding it only when it is shown
+     */
+    public Cell(Unit parent, String name, byte[] value, long timestamp, Codec codec) {
+        this(parent, name, value, timestamp);
+        this.codec = codec;
     }
 
     /**
@@ -53,44 +82,73 @@ public class Cell implements Unit, Serializable {
     }
 
     /**
-     * @return the value
+     * @return the value decoded by the codec of the cell, as UTF-8 if it has none
      */
     public String getValue() {
-        return value;
+        if (value == null) {
+            return null;
+        } else if (codec != null) {
+            return codec.decode(value);
+        }
+
+        try {
+            return new String(value, UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
     }
 
     /**
-     * @param value the value to set
+     * @param value the value to set, stored as UTF-8
      */
     public void setValue(String value) {
-        this.value = value;
+        codec = null;
+        try {
+            this.value = value == null ? null : value.getBytes(UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return the raw value
+     */
+    public byte[] getValueBytes() {
+        return value;
+    }
+
+    /**
+     * @return the codec of the value, null for UTF-8
+     */
+    public Codec getCodec() {
+        return codec;
     }
 
     /**
-     * @return the date
+     * @return the date, with the precision of milliseconds
      */
     public Date getDate() {
-        return date;
+        return new Date(timestamp / 1000);
     }
 
     /**
      * @param date the date to set
      */
     public void setDate(Date date) {
-        this.date = date;
+        this.timestamp = date == null ? 0 : date.getTime() * 1000;
     }
 
     /**
-     * @return the treeNode
+     * @return the timestamp in microseconds
      */
-    public DefaultMutableTreeNode getTreeNode() {
-        return treeNode;
+    public long getTimestamp() {
+        return timestamp;
     }
 
     /**
-     * @param treeNode the treeNode to set
+     * @param timestamp the timestamp in microseconds to set
      */
-    public void setTreeNode(DefaultMutableTreeNode treeNode) {
-        this.treeNode = treeNode;
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
     }
 }
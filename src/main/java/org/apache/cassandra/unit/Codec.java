@@ -0,0 +1,19 @@
+package org.apache.cassandra.unit;
+
+/**
+ * Converts the bytes of a column name or value of one Cassandra type
+ * to the text shown to the user, and back.
+ */
+public interface Codec {
+    /**
+     * @return the name of the Cassandra type, e.g. LongType
+     */
+    public String getType();
+
+    public String decode(byte[] bytes);
+
+    /**
+     * @throws IllegalArgumentException if s is not a valid value of the type
+     */
+    public byte[] encode(String s);
+}
@@ -3,16 +3,15 @@ package org.apache.cassandra.unit;
 import java.io.Serializable;
 import java.util.Map;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-
 public class Key implements Unit, Serializable {
     private static final long serialVersionUID = 2675876416744532430L;
 
     private String name;
-    private DefaultMutableTreeNode treeNode;
     private boolean superColumn;
     private Map<String, SColumn> sColumns;
     private Map<String, Cell> cells;
+    private boolean truncated;
+    private byte[] lastColumnName;
 
     public Key() {
     }
@@ -37,20 +36,6 @@ public class Key implements Unit, Serializable {
         this.name = name;
     }
 
-    /**
-     * @return the treeNode
-     */
-    public DefaultMutableTreeNode getTreeNode() {
-        return treeNode;
-    }
-
-    /**
-     * @param treeNode the treeNode to set
-     */
-    public void setTreeNode(DefaultMutableTreeNode treeNode) {
-        this.treeNode = treeNode;
-    }
-
     /**
      * @return the superColumn
      */
@@ -92,4 +77,32 @@ public class Key implements Unit, Serializable {
     public void setCells(Map<String, Cell> cells) {
         this.cells = cells;
     }
+
+    /**
+     * @return true if the row has more columns than were fetched
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @param truncated the truncated to set
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return the raw name of the last column fetched, the start of the next slice
+     */
+    public byte[] getLastColumnName() {
+        return lastColumnName;
+    }
+
+    /**
+     * @param lastColumnName the lastColumnName to set
+     */
+    public void setLastColumnName(byte[] lastColumnName) {
+        this.lastColumnName = lastColumnName;
+    }
 }
\ No newline at end of file